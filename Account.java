@@ -0,0 +1,24 @@
+package MultithreadingInJava;
+
+/**
+ * Common contract of the bank account examples.
+ *
+ * Every locking strategy (synchronized, ReentrantLock, ...) implements this
+ * interface so the strategies can be swapped in the examples and compared
+ * against each other in the JMH benchmarks.
+ */
+interface Account {
+
+   /**
+    * Withdraws the given amount if the balance allows it.
+    *
+    * @return true if the withdrawal was applied, false if it was rejected
+    *         (insufficient balance, lock timeout or interruption)
+    */
+   boolean withdrawAmount(int amount);
+
+   /**
+    * @return the current balance of the account
+    */
+   int getBalance();
+}
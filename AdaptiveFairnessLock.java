@@ -0,0 +1,190 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Reentrant lock that barges by default and turns fair only while someone starves.
+ *
+ * The trade-off it avoids (see LockFairness.java):
+ * - Fair lock: no starvation, but every release hands the lock to a parked
+ *   thread (a context switch), so throughput drops by an order of magnitude
+ * - Unfair lock: a running thread can grab the lock again and again, so a
+ *   queued thread may wait for a very long time
+ *
+ * How it adapts:
+ * 1. Barging mode (default): like new ReentrantLock(), whoever arrives while
+ *    the lock is free takes it, even if others are queued
+ * 2. A waiter that has been queued longer than starvationThreshold registers
+ *    itself as starving; while at least one thread is starving, acquisition is
+ *    FIFO (new arrivals queue up behind the waiters, like new ReentrantLock(true))
+ * 3. When the starving thread gets the lock it unregisters, and once nobody is
+ *    starving the lock goes back to barging
+ *
+ * Note: a waiter that crosses the threshold leaves the queue and re-enters at
+ * the tail (AQS cannot turn a timed wait into an untimed one in place); with
+ * FIFO on, it is still served after a bounded number of handoffs.
+ */
+class AdaptiveFairnessLock implements Lock {
+
+   private final Sync sync = new Sync();
+   private final long starvationThresholdNanos;
+   private final AtomicInteger starvingWaiters = new AtomicInteger();
+   private final AtomicLong fairPeriods = new AtomicLong();
+
+   AdaptiveFairnessLock(long starvationThreshold, TimeUnit unit) {
+      this.starvationThresholdNanos = unit.toNanos(starvationThreshold);
+   }
+
+   private final class Sync extends AbstractQueuedSynchronizer {
+      @Override
+      protected boolean tryAcquire(int acquires) {
+         Thread current = Thread.currentThread();
+         int c = getState();
+         if (c == 0) {
+            // Barge unless someone is starving; then only the head of the queue may take it
+            if ((starvingWaiters.get() == 0 || !hasQueuedPredecessors()) && compareAndSetState(0, acquires)) {
+               setExclusiveOwnerThread(current);
+               return true;
+            }
+         } else if (current == getExclusiveOwnerThread()) {
+            int next = c + acquires;
+            if (next < 0) {
+               throw new Error("Maximum lock count exceeded");
+            }
+            setState(next);
+            return true;
+         }
+         return false;
+      }
+
+      @Override
+      protected boolean tryRelease(int releases) {
+         if (Thread.currentThread() != getExclusiveOwnerThread()) {
+            throw new IllegalMonitorStateException();
+         }
+         int c = getState() - releases;
+         boolean free = c == 0;
+         if (free) {
+            setExclusiveOwnerThread(null);
+         }
+         setState(c);
+         return free;
+      }
+
+      @Override
+      protected boolean isHeldExclusively() {
+         return getExclusiveOwnerThread() == Thread.currentThread();
+      }
+
+      boolean tryLockNow() {
+         return tryAcquire(1);
+      }
+
+      Condition newCondition() {
+         return new ConditionObject();
+      }
+   }
+
+   @Override
+   public void lock() {
+      // lock() is not interruptible: clear the flag so the timed wait really waits, restore it at the end
+      boolean interrupted = Thread.interrupted();
+      try {
+         long deadline = System.nanoTime() + starvationThresholdNanos;
+         for (long remaining = starvationThresholdNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            try {
+               if (sync.tryLockNow() || sync.tryAcquireNanos(1, remaining)) {
+                  return;
+               }
+               break;  // Waited the whole threshold: starving
+            } catch (InterruptedException e) {
+               interrupted = true;  // Keep waiting for the rest of the threshold
+            }
+         }
+         acquireWhileStarving();
+      } finally {
+         if (interrupted) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+
+   @Override
+   public void lockInterruptibly() throws InterruptedException {
+      if (sync.tryLockNow() || sync.tryAcquireNanos(1, starvationThresholdNanos)) {
+         return;
+      }
+      if (starvingWaiters.getAndIncrement() == 0) {
+         fairPeriods.incrementAndGet();
+      }
+      try {
+         sync.acquireInterruptibly(1);
+      } finally {
+         starvingWaiters.decrementAndGet();
+      }
+   }
+
+   @Override
+   public boolean tryLock() {
+      return sync.tryLockNow();
+   }
+
+   @Override
+   public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+      long timeoutNanos = unit.toNanos(time);
+      if (sync.tryLockNow() || sync.tryAcquireNanos(1, Math.min(timeoutNanos, starvationThresholdNanos))) {
+         return true;
+      }
+      if (timeoutNanos <= starvationThresholdNanos) {
+         return false;
+      }
+      if (starvingWaiters.getAndIncrement() == 0) {
+         fairPeriods.incrementAndGet();
+      }
+      try {
+         return sync.tryAcquireNanos(1, timeoutNanos - starvationThresholdNanos);
+      } finally {
+         starvingWaiters.decrementAndGet();
+      }
+   }
+
+   @Override
+   public void unlock() {
+      sync.release(1);
+   }
+
+   @Override
+   public Condition newCondition() {
+      return sync.newCondition();
+   }
+
+   /**
+    * @return true while at least one waiter is starving and handoff is FIFO
+    */
+   public boolean isFifoMode() {
+      return starvingWaiters.get() > 0;
+   }
+
+   /**
+    * @return how many times the lock switched from barging to FIFO
+    */
+   public long fairPeriods() {
+      return fairPeriods.get();
+   }
+
+   private void acquireWhileStarving() {
+      if (starvingWaiters.getAndIncrement() == 0) {
+         fairPeriods.incrementAndGet();
+      }
+      try {
+         sync.acquire(1);
+      } finally {
+         starvingWaiters.decrementAndGet();
+      }
+   }
+}
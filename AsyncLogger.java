@@ -0,0 +1,232 @@
+package MultithreadingInJava;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Non-blocking, allocation-light logger for hot paths and critical sections.
+ *
+ * Why not System.out.println inside a lock?
+ * - println takes the PrintStream monitor and does the I/O while the caller
+ *   still holds its own lock, so every thread serializes on the console and
+ *   the logging dominates the lock hold time
+ * - The string concatenation at the call site allocates on every call
+ *
+ * How it works:
+ * 1. log() claims a slot in a pre-allocated ring of mutable LogEvents (same
+ *    sequence scheme as RingBuffer), stores the thread, the message and an
+ *    optional value, and publishes the slot - no lock, no I/O, no allocation
+ * 2. A background flusher thread drains all published slots, formats them
+ *    into one reusable StringBuilder and writes the whole batch with one print
+ * 3. When the ring is full the OverflowPolicy decides:
+ *    - DROP:  the line is counted in dropped() and discarded (caller never waits)
+ *    - BLOCK: the caller waits for the flusher to free a slot (no line is lost)
+ *
+ * Output format: "Thread <name> <message><value>"
+ * Values passed as Object are formatted by the flusher, later than the call.
+ *
+ * The shared() logger writes to System.out, uses the policy from the system
+ * property multithreading.log.policy (BLOCK by default, so example output is
+ * never lost) and drains itself on JVM shutdown, reporting any dropped lines.
+ */
+class AsyncLogger implements AutoCloseable {
+
+   public enum OverflowPolicy {
+      DROP,
+      BLOCK
+   }
+
+   private static final int PAD = 16;
+   private static final int HEAD = PAD;
+   private static final int TAIL = 2 * PAD;
+   private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+   private static final long NO_VALUE = Long.MIN_VALUE;
+   // How long the flusher sleeps when there is nothing to write
+   private static final long IDLE_PARK_NANOS = 1_000_000;
+
+   // One pre-allocated, reused log line
+   private static final class LogEvent {
+      Thread thread;
+      String message;
+      long value;
+      Object argument;
+   }
+
+   private static final class Holder {
+      static final AsyncLogger SHARED = createShared();
+   }
+
+   private final LogEvent[] events;
+   private final long[] sequences;
+   private final long[] positions = new long[3 * PAD];
+   private final int mask;
+   private final OverflowPolicy policy;
+   private final PrintStream out;  // null: whatever System.out is at flush time
+   private final StripedCounter dropped = new StripedCounter();
+   private final Thread flusher;
+   private volatile boolean running = true;
+
+   /**
+    * @param capacity   ring size in log lines, a power of two
+    * @param out        target stream, or null to follow System.out
+    */
+   AsyncLogger(int capacity, OverflowPolicy policy, PrintStream out) {
+      if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+         throw new IllegalArgumentException("Capacity must be a power of two >= 2: " + capacity);
+      }
+      this.events = new LogEvent[capacity];
+      this.sequences = new long[capacity];
+      for (int i = 0; i < capacity; i++) {
+         events[i] = new LogEvent();
+         sequences[i] = i;
+      }
+      this.mask = capacity - 1;
+      this.policy = policy;
+      this.out = out;
+      this.flusher = new Thread(this::flushLoop, "async-logger");
+      this.flusher.setDaemon(true);
+      this.flusher.start();
+   }
+
+   /**
+    * The process-wide logger used by the examples.
+    */
+   static AsyncLogger shared() {
+      return Holder.SHARED;
+   }
+
+   private static AsyncLogger createShared() {
+      OverflowPolicy policy = OverflowPolicy.valueOf(System.getProperty("multithreading.log.policy", "BLOCK"));
+      AsyncLogger logger = new AsyncLogger(1 << 16, policy, null);
+      Runtime.getRuntime().addShutdownHook(new Thread(logger::close, "async-logger-shutdown"));
+      return logger;
+   }
+
+   public void log(String message) {
+      publish(message, NO_VALUE, null);
+   }
+
+   public void log(String message, long value) {
+      publish(message, value, null);
+   }
+
+   public void log(String message, Object argument) {
+      publish(message, NO_VALUE, argument);
+   }
+
+   /**
+    * @return number of lines discarded because the ring was full (DROP policy)
+    */
+   public long dropped() {
+      return dropped.getCount();
+   }
+
+   /**
+    * Stops the flusher after it has written every line published so far.
+    */
+   @Override
+   public void close() {
+      if (!running) {
+         return;
+      }
+      running = false;
+      LockSupport.unpark(flusher);
+      try {
+         flusher.join();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      long lost = dropped();
+      if (lost > 0) {
+         target().println("[async-logger] " + lost + " log lines dropped (ring full)");
+      }
+      target().flush();
+   }
+
+   private void publish(String message, long value, Object argument) {
+      long position = (long) LONGS.getVolatile(positions, TAIL);
+      int idleCount = 0;
+      for (;;) {
+         int slot = (int) position & mask;
+         long difference = (long) LONGS.getAcquire(sequences, slot) - position;
+         if (difference == 0) {
+            if (LONGS.compareAndSet(positions, TAIL, position, position + 1)) {
+               break;
+            }
+            position = (long) LONGS.getVolatile(positions, TAIL);
+         } else if (difference < 0) {
+            // Ring full
+            if (policy == OverflowPolicy.DROP || !running) {
+               dropped.increment();
+               return;
+            }
+            Thread.onSpinWait();
+            if (++idleCount > 100) {
+               Thread.yield();
+            }
+            position = (long) LONGS.getVolatile(positions, TAIL);
+         } else {
+            position = (long) LONGS.getVolatile(positions, TAIL);
+         }
+      }
+      int slot = (int) position & mask;
+      LogEvent event = events[slot];
+      event.thread = Thread.currentThread();
+      event.message = message;
+      event.value = value;
+      event.argument = argument;
+      LONGS.setRelease(sequences, slot, position + 1);
+   }
+
+   private void flushLoop() {
+      StringBuilder batch = new StringBuilder(64 * 1024);
+      for (;;) {
+         boolean stopping = !running;
+         int written = drain(batch);
+         if (written == 0) {
+            if (stopping) {
+               return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+         }
+      }
+   }
+
+   // Formats every published line into batch and prints it with one call
+   private int drain(StringBuilder batch) {
+      long head = (long) LONGS.getVolatile(positions, HEAD);
+      int count = 0;
+      while (count <= mask) {  // At most one ring's worth per print, so a busy ring cannot grow the batch forever
+         long position = head + count;
+         int slot = (int) position & mask;
+         if ((long) LONGS.getAcquire(sequences, slot) != position + 1) {
+            break;
+         }
+         LogEvent event = events[slot];
+         batch.append("Thread ").append(event.thread.getName()).append(' ').append(event.message);
+         if (event.argument != null) {
+            batch.append(event.argument);
+         } else if (event.value != NO_VALUE) {
+            batch.append(event.value);
+         }
+         batch.append(System.lineSeparator());
+         event.thread = null;
+         event.message = null;
+         event.argument = null;
+         LONGS.setRelease(sequences, slot, position + mask + 1);
+         count++;
+      }
+      if (count > 0) {
+         LONGS.setOpaque(positions, HEAD, head + count);
+         target().print(batch);
+         batch.setLength(0);
+      }
+      return count;
+   }
+
+   private PrintStream target() {
+      return out != null ? out : System.out;
+   }
+}
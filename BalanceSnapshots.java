@@ -0,0 +1,246 @@
+package MultithreadingInJava;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Consistent point-in-time checkpoints of an OffHeapBalanceTable while writers
+ * keep going (epochs + copy-on-write pages).
+ *
+ * Why not lock every account and copy? That freezes all withdrawals for as
+ * long as the copy takes. Here writers only ever wait for the writes that were
+ * already in flight when the checkpoint started (microseconds), never for
+ * the copy itself.
+ *
+ * How:
+ * 1. Every write runs inside beginWrite(id) / endWrite(ticket). beginWrite
+ *    registers the writer in the current epoch (a StripedCounter per epoch
+ *    parity, so registering is contention-free).
+ * 2. checkpoint() bumps the epoch: that is the cut. Writes of the old epoch
+ *    are in the checkpoint, writes of the new epoch are not. It waits until
+ *    the old epoch has no writers left.
+ * 3. Copy-on-write: the table is split into pages of 512 accounts. The first
+ *    new-epoch writer to touch a page copies the page (still holding the
+ *    old-epoch values) into the checkpoint before it writes. The checkpoint
+ *    thread copies every page nobody touched. Each page is copied exactly
+ *    once, claimed by a CAS on its state.
+ *
+ * Checkpoint file (written to file.tmp, then atomically renamed):
+ *    header (64 bytes): magic, version, accounts, position, total balance, checksum of the balances
+ *    balances: accounts * 8 bytes, account id i at 64 + i * 8
+ * "position" is whatever the caller supplies at the cut, e.g. the last
+ * journal sequence included, so restart can load the file and replay only
+ * the journal after it.
+ *
+ * Usage:
+ *    long ticket = snapshots.beginWrite(id);
+ *    try { ... change account id, append to the journal ... }
+ *    finally { snapshots.endWrite(ticket); }
+ *
+ * Interview Tip: this is the classic fork()-style snapshot (Redis BGSAVE,
+ * database fuzzy checkpoints) done in user space: pay for a copy only for the
+ * pages that change while the snapshot is running.
+ */
+class BalanceSnapshots {
+
+   /** A checkpoint on disk: balances of all accounts as of position. */
+   record Checkpoint(Path file, long position, int accounts, long totalBalance) {
+   }
+
+   static final int PAGE_ACCOUNTS = 512;  // 4 KB of balances per copy-on-write page
+   static final int HEADER_SIZE = 64;
+
+   private static final int MAGIC = 0x434B5054;  // "CKPT"
+   private static final int VERSION = 1;
+   private static final long H_MAGIC = 0;
+   private static final long H_VERSION = 4;
+   private static final long H_ACCOUNTS = 8;
+   private static final long H_POSITION = 16;
+   private static final long H_TOTAL = 24;
+   private static final long H_CHECKSUM = 32;
+
+   private static final VarHandle STATE = MethodHandles.arrayElementVarHandle(long[].class);
+
+   private final OffHeapBalanceTable table;
+   // Page state: 2 * e once the page is copied for epoch e, 2 * e - 1 while it is being copied
+   private final long[] pageStates;
+   // Writers inside beginWrite/endWrite, by epoch parity (at most two epochs are ever live)
+   private final StripedCounter[] writers = {new StripedCounter(), new StripedCounter()};
+   private final ReentrantLock checkpointLock = new ReentrantLock();
+   private final WaitStrategy waitStrategy = WaitStrategy.spinThenYield(WaitStrategy.SPIN_TRIES);
+
+   private volatile long epoch;
+   private volatile long drainedEpoch;    // Every writer of the epoch before this one is done
+   private volatile MemorySegment image;  // Balances section of the checkpoint being written
+
+   BalanceSnapshots(OffHeapBalanceTable table) {
+      this.table = table;
+      this.pageStates = new long[(table.size() + PAGE_ACCOUNTS - 1) / PAGE_ACCOUNTS];
+   }
+
+   /**
+    * Enters a write to account id. Everything done until endWrite(ticket)
+    * lands on the same side of any checkpoint cut. Do not nest.
+    *
+    * @return the ticket to pass to endWrite
+    */
+   long beginWrite(int id) {
+      Objects.checkIndex(id, table.size());
+      long e;
+      for (;;) {
+         e = epoch;
+         writers[(int) (e & 1)].increment();
+         if (epoch == e) {
+            break;
+         }
+         writers[(int) (e & 1)].add(-1);  // A cut happened meanwhile: join the new epoch
+      }
+      int page = id / PAGE_ACCOUNTS;
+      if ((long) STATE.getAcquire(pageStates, page) != 2 * e) {
+         preserve(page, e);
+      }
+      return e;
+   }
+
+   void endWrite(long ticket) {
+      writers[(int) (ticket & 1)].add(-1);
+   }
+
+   /**
+    * Writes a consistent checkpoint of all balances to file; writers keep
+    * running. One checkpoint at a time.
+    *
+    * @param positionAtCut called at the cut, when no write is in flight: the
+    *                      position stored in the checkpoint (e.g. last journal sequence)
+    * @param beforePublish called with that position before the file replaces
+    *                      the previous checkpoint (e.g. force the journal up to it)
+    */
+   Checkpoint checkpoint(Path file, LongSupplier positionAtCut, LongConsumer beforePublish) throws IOException {
+      checkpointLock.lock();
+      try {
+         Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+         int accounts = table.size();
+         long position;
+         long total = 0;
+         try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+              Arena arena = Arena.ofShared()) {
+            MemorySegment mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                  HEADER_SIZE + accounts * ValueLayout.JAVA_LONG.byteSize(), arena);
+            MemorySegment balances = mapping.asSlice(HEADER_SIZE);
+            image = balances;
+
+            // The cut: new writers join epoch e; wait for the stragglers of e - 1
+            long e = epoch + 1;
+            epoch = e;
+            StripedCounter previous = writers[(int) ((e - 1) & 1)];
+            for (int idleCount = 0; previous.getCount() != 0; idleCount++) {
+               waitStrategy.idle(idleCount);
+            }
+            position = positionAtCut.getAsLong();
+            drainedEpoch = e;
+
+            for (int page = 0; page < pageStates.length; page++) {
+               preserve(page, e);
+            }
+            image = null;
+
+            for (long id = 0; id < accounts; id++) {
+               total += balances.getAtIndex(ValueLayout.JAVA_LONG, id);
+            }
+            mapping.set(ValueLayout.JAVA_INT, H_MAGIC, MAGIC);
+            mapping.set(ValueLayout.JAVA_INT, H_VERSION, VERSION);
+            mapping.set(ValueLayout.JAVA_INT, H_ACCOUNTS, accounts);
+            mapping.set(ValueLayout.JAVA_LONG, H_POSITION, position);
+            mapping.set(ValueLayout.JAVA_LONG, H_TOTAL, total);
+            mapping.set(ValueLayout.JAVA_LONG, H_CHECKSUM, checksum(balances));
+            beforePublish.accept(position);
+            mapping.force();
+         }
+         Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+         return new Checkpoint(file, position, accounts, total);
+      } finally {
+         image = null;
+         checkpointLock.unlock();
+      }
+   }
+
+   /**
+    * Loads a checkpoint into table, which must not be in use yet.
+    *
+    * @throws IOException if the file is not a valid checkpoint for this many accounts
+    */
+   static Checkpoint load(Path file, OffHeapBalanceTable table) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+           Arena arena = Arena.ofConfined()) {
+         long size = channel.size();
+         if (size < HEADER_SIZE) {
+            throw new IOException("Not a checkpoint file: " + file);
+         }
+         MemorySegment mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+         int accounts = mapping.get(ValueLayout.JAVA_INT, H_ACCOUNTS);
+         if (mapping.get(ValueLayout.JAVA_INT, H_MAGIC) != MAGIC || mapping.get(ValueLayout.JAVA_INT, H_VERSION) != VERSION
+               || size != HEADER_SIZE + accounts * ValueLayout.JAVA_LONG.byteSize()) {
+            throw new IOException("Not a checkpoint file (or an incompatible version): " + file);
+         }
+         if (accounts != table.size()) {
+            throw new IOException("Checkpoint has " + accounts + " accounts, table has " + table.size() + ": " + file);
+         }
+         MemorySegment balances = mapping.asSlice(HEADER_SIZE);
+         if (checksum(balances) != mapping.get(ValueLayout.JAVA_LONG, H_CHECKSUM)) {
+            throw new IOException("Corrupt checkpoint (checksum mismatch): " + file);
+         }
+         table.copyFrom(balances, 0);
+         return new Checkpoint(file, mapping.get(ValueLayout.JAVA_LONG, H_POSITION), accounts,
+               mapping.get(ValueLayout.JAVA_LONG, H_TOTAL));
+      }
+   }
+
+   // ------------------------------------------------------------------
+
+   /** Makes sure page holds its epoch e - 1 values in the checkpoint before anyone writes to it in epoch e. */
+   private void preserve(int page, long e) {
+      // Old-epoch writes may still be landing on this page; they are short
+      for (int idleCount = 0; drainedEpoch < e; idleCount++) {
+         waitStrategy.idle(idleCount);
+      }
+      long copied = 2 * e;
+      for (int idleCount = 0; ; idleCount++) {
+         long state = (long) STATE.getVolatile(pageStates, page);
+         if (state == copied) {
+            return;
+         }
+         if (state < copied - 1 && STATE.compareAndSet(pageStates, page, state, copied - 1)) {
+            int from = page * PAGE_ACCOUNTS;
+            int count = Math.min(PAGE_ACCOUNTS, table.size() - from);
+            table.copyTo(from, count, image, from * ValueLayout.JAVA_LONG.byteSize());
+            STATE.setRelease(pageStates, page, copied);
+            return;
+         }
+         waitStrategy.idle(idleCount);  // Another thread is copying this page
+      }
+   }
+
+   /** 64-bit mix over every balance, in order; detects torn or corrupted checkpoint files. */
+   private static long checksum(MemorySegment balances) {
+      long h = balances.byteSize();
+      for (long i = 0, n = balances.byteSize() / ValueLayout.JAVA_LONG.byteSize(); i < n; i++) {
+         h = (h ^ balances.getAtIndex(ValueLayout.JAVA_LONG, i)) * 0x9E3779B97F4A7C15L;
+         h ^= h >>> 29;
+      }
+      return h;
+   }
+}
@@ -48,7 +48,7 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class BasicLockExampleInPlaceOfSyncronized {
      public static void main(String[] args) {
-      SbiAccount sbiAccount = new SbiAccount();
+      LockBasedSbiAccount sbiAccount = new LockBasedSbiAccount();
 
       Runnable task = () -> sbiAccount.withdrawAmount(500);
 
@@ -80,12 +80,27 @@ public class BasicLockExampleInPlaceOfSyncronized {
  * - Timeout handling
  * - Exception safety
  */
-class SbiAccount {
-   private int balance = 1000;  // Protected resource
+class LockBasedSbiAccount implements Account {
+   // Logging goes through the async logger: no console I/O while the lock is held
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
+   private int balance;  // Protected resource
    
    // Best Practice: Declare lock as private final
    private final Lock lock = new ReentrantLock();
 
+   // Simulated processing time of one withdrawal (2 seconds in the example)
+   private final long processingMillis;
+
+   LockBasedSbiAccount() {
+      this(1000, 2000);
+   }
+
+   LockBasedSbiAccount(int balance, long processingMillis) {
+      this.balance = balance;
+      this.processingMillis = processingMillis;
+   }
+
    /**
     *  Thread-Safe Withdrawal Implementation
     * 
@@ -99,38 +114,59 @@ class SbiAccount {
     * - Demonstrates proper lock lifecycle
     * - Shows timeout handling
     * - Illustrates critical section protection
+    * - The balance is updated before the lock is released, and the lock is
+    *   released on every path (including insufficient balance)
     */
-   public void withdrawAmount(int amount) {
+   @Override
+   public boolean withdrawAmount(int amount) {
       try {
          // Try to get lock with 1-second timeout
          if (lock.tryLock(1000, TimeUnit.MILLISECONDS)) {
-            if (balance >= amount) {
-               System.out.println("Thread " + Thread.currentThread().getName() + " request to Withdraw $ " + amount);
-               try {
-                  System.out.println("Thread :- " + Thread.currentThread().getName() + " Withdrawal in progress.....");
-                  Thread.sleep(2000);
+            try {
+               if (balance >= amount) {
+                  LOG.log("request to Withdraw $ ", amount);
+                  try {
+                     LOG.log("Withdrawal in progress.....");
+                     if (processingMillis > 0) {
+                        Thread.sleep(processingMillis);
+                     }
+                  }
+                  catch (InterruptedException ignored) {
+                     Thread.currentThread().interrupt();
+                  }
+                  LOG.log("Completed withdrawal");
+                  balance -= amount;
+                  LOG.log("Remaining balance is ", balance);
+                  return true;
                }
-               catch (InterruptedException ignored) {
-                  Thread.currentThread().interrupt();
+               else {
+                  LOG.log("Insufficient Balance.....");
+                  return false;
                }
-               finally {
-                  lock.unlock();
-               }
-               System.out.println("Completed withdrawal by thread " + Thread.currentThread().getName());
-               balance -= amount;
-               System.out.println("Reamining balance is " + balance);
             }
-            else {
-               System.out.println("Insufficinet Balance.....");
+            finally {
+               lock.unlock();
             }
          }
          else {
-            System.out.println("Thread " + Thread.currentThread().getName() + " failed to acquire lock. Please try again later...");
+            LOG.log("failed to acquire lock. Please try again later...");
+            return false;
          }
       }
-      catch (Exception e) {
+      catch (InterruptedException e) {
          Thread.currentThread().interrupt();
+         return false;
       }
 
    }
+
+   @Override
+   public int getBalance() {
+      lock.lock();
+      try {
+         return balance;
+      } finally {
+         lock.unlock();
+      }
+   }
 }
\ No newline at end of file
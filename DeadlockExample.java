@@ -6,6 +6,11 @@ public class DeadlockExample {
     private static final Object lock2 = new Object();
 
     public static void main(String[] args) {
+        // Watchdog samples every 500 ms and prints the lock cycle with stack traces.
+        // Both threads are BLOCKED on synchronized monitors, which ignore interrupts,
+        // so the deadlock is reported but the program still hangs.
+        new DeadlockWatchdog(500, false).start();
+
         Thread t1 = new Thread(() -> {
             synchronized(lock1) {
                 System.out.println("Thread 1 is holding lock 1...");
@@ -0,0 +1,199 @@
+package MultithreadingInJava;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Background watchdog that finds deadlocks at runtime instead of hours later
+ * from a thread dump.
+ *
+ * How it works:
+ * 1. Every samplingMillis a daemon thread calls ThreadMXBean.findDeadlockedThreads()
+ *    (covers both synchronized monitors and java.util.concurrent locks)
+ * 2. For a new deadlock it builds a report of the lock cycle: who waits for
+ *    which lock, who holds it, and the full stack of every thread in the cycle
+ * 3. Optionally it interrupts one victim to break the cycle
+ *
+ * Notes:
+ * - The check is a JVM safepoint operation; its cost grows with the number of
+ *   threads, so keep the interval in the hundreds of milliseconds or more
+ * - Threads BLOCKED on a synchronized monitor ignore interrupts. Only threads
+ *   waiting in Lock.lockInterruptibly()/tryLock(timeout) can be victims;
+ *   a cycle made only of monitors or Lock.lock() waiters is reported but cannot be broken
+ * - A cycle is reported once, not on every sample
+ */
+class DeadlockWatchdog implements AutoCloseable {
+   private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+   private final long samplingMillis;
+   private final boolean interruptVictim;
+   private final Consumer<String> reporter;
+   private final ScheduledExecutorService scheduler;
+   private final AtomicLong deadlocksDetected = new AtomicLong();
+   private final Set<Long> reportedThreadIds = new HashSet<>();  // Only touched by the watchdog thread
+
+   DeadlockWatchdog(long samplingMillis, boolean interruptVictim) {
+      this(samplingMillis, interruptVictim, System.err::println);
+   }
+
+   DeadlockWatchdog(long samplingMillis, boolean interruptVictim, Consumer<String> reporter) {
+      if (samplingMillis <= 0) {
+         throw new IllegalArgumentException("Sampling interval must be positive: " + samplingMillis);
+      }
+      this.samplingMillis = samplingMillis;
+      this.interruptVictim = interruptVictim;
+      this.reporter = reporter;
+      this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+         Thread thread = new Thread(task, "deadlock-watchdog");
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   /**
+    * Starts sampling in the background.
+    */
+   public DeadlockWatchdog start() {
+      scheduler.scheduleWithFixedDelay(this::sample, samplingMillis, samplingMillis, TimeUnit.MILLISECONDS);
+      return this;
+   }
+
+   public long deadlocksDetected() {
+      return deadlocksDetected.get();
+   }
+
+   @Override
+   public void close() {
+      scheduler.shutdownNow();
+   }
+
+   private void sample() {
+      try {
+         String report = checkNow();
+         if (report != null) {
+            reporter.accept(report);
+         }
+      } catch (RuntimeException e) {
+         // Never let one failed sample cancel the periodic task
+         reporter.accept("Deadlock watchdog sample failed: " + e);
+      }
+   }
+
+   /**
+    * Runs one check on the calling thread.
+    *
+    * @return the report of a newly found deadlock, or null if there is none
+    */
+   String checkNow() {
+      long[] ids = threadMXBean.findDeadlockedThreads();
+      if (ids == null) {
+         reportedThreadIds.clear();
+         return null;
+      }
+      Set<Long> current = new HashSet<>();
+      for (long id : ids) {
+         current.add(id);
+      }
+      if (reportedThreadIds.containsAll(current)) {
+         return null;  // Already reported this cycle
+      }
+      reportedThreadIds.addAll(current);
+      deadlocksDetected.incrementAndGet();
+
+      ThreadInfo[] infos = threadMXBean.getThreadInfo(ids, true, true, Integer.MAX_VALUE);
+      StringBuilder report = new StringBuilder();
+      report.append("Deadlock detected between ").append(ids.length).append(" threads:\n");
+      for (ThreadInfo info : infos) {
+         if (info == null) {
+            continue;  // Thread ended meanwhile
+         }
+         report.append('"').append(info.getThreadName()).append("\" (").append(info.getThreadState())
+               .append(") waits for ").append(info.getLockName())
+               .append(" held by \"").append(info.getLockOwnerName()).append("\"\n");
+      }
+      for (ThreadInfo info : infos) {
+         if (info != null) {
+            appendStack(report, info);
+         }
+      }
+      if (interruptVictim) {
+         report.append(interruptVictim(infos));
+      }
+      return report.toString();
+   }
+
+   private static void appendStack(StringBuilder report, ThreadInfo info) {
+      report.append("\n\"").append(info.getThreadName()).append("\" stack:\n");
+      StackTraceElement[] stack = info.getStackTrace();
+      for (int i = 0; i < stack.length; i++) {
+         report.append("\tat ").append(stack[i]).append('\n');
+         if (i == 0 && info.getLockInfo() != null) {
+            report.append("\t- waiting for ").append(info.getLockInfo()).append('\n');
+         }
+         for (MonitorInfo monitor : info.getLockedMonitors()) {
+            if (monitor.getLockedStackDepth() == i) {
+               report.append("\t- locked ").append(monitor).append('\n');
+            }
+         }
+      }
+      for (LockInfo synchronizer : info.getLockedSynchronizers()) {
+         report.append("\t- holds ").append(synchronizer).append('\n');
+      }
+   }
+
+   // AQS entry points that give up on interrupt: lockInterruptibly(), tryLock(timeout) and their shared forms.
+   // Lock.lock() parks too (WAITING, like these) but goes through acquire(int), which ignores interrupts.
+   private static final Set<String> INTERRUPTIBLE_ACQUIRES =
+         Set.of("acquireInterruptibly", "tryAcquireNanos", "acquireSharedInterruptibly", "tryAcquireSharedNanos");
+
+   // Picks the youngest thread that is waiting interruptibly on a j.u.c lock
+   private static String interruptVictim(ThreadInfo[] infos) {
+      long victimId = Arrays.stream(infos)
+            .filter(info -> info != null && waitsInterruptibly(info))
+            .mapToLong(ThreadInfo::getThreadId)
+            .max()
+            .orElse(-1);
+      if (victimId < 0) {
+         return "\nNo interruptible victim: every thread is BLOCKED on a synchronized monitor or waiting in Lock.lock();"
+               + " an interrupt would not break the cycle\n";
+      }
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+         if (thread.threadId() == victimId) {
+            thread.interrupt();
+            return "\nInterrupted victim \"" + thread.getName() + "\" to break the cycle\n";
+         }
+      }
+      return "\nVictim thread " + victimId + " is gone\n";
+   }
+
+   private static boolean waitsInterruptibly(ThreadInfo info) {
+      if (info.getThreadState() == Thread.State.BLOCKED) {
+         return false;
+      }
+      boolean inLock = false;
+      for (StackTraceElement frame : info.getStackTrace()) {
+         String className = frame.getClassName();
+         if (className.startsWith("java.util.concurrent.locks.AbstractQueued")
+               && INTERRUPTIBLE_ACQUIRES.contains(frame.getMethodName())) {
+            return true;
+         }
+         if (className.startsWith("java.util.concurrent.locks.")) {
+            inLock = true;  // Still inside the lock implementation
+         } else if (inLock) {
+            return false;  // Reached the caller without passing an interruptible acquire
+         }
+         // Frames above LockSupport.park (Unsafe.park) are skipped
+      }
+      return false;
+   }
+}
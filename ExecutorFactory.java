@@ -0,0 +1,320 @@
+package MultithreadingInJava;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Creates executors by kind and wraps every one of them in a MeteredExecutorService.
+ *
+ * Kinds:
+ * 1. SINGLE_THREAD, FIXED, CACHED, SCHEDULED - the stock pools from ThreadPoolExample
+ * 2. WORK_STEALING - a ForkJoinPool: one deque per worker, idle workers steal
+ *    from busy ones; good for many small CPU-bound tasks
+ * 3. VIRTUAL_PER_TASK - a new virtual thread per task; good for blocking I/O
+ *
+ * queueCapacity bounds the task queue of SINGLE_THREAD and FIXED pools
+ * (0 = unbounded, like the Executors factories); a full queue rejects.
+ * SCHEDULED returns a MeteredScheduledExecutorService (see createScheduled),
+ * so schedule() and the periodic methods stay available.
+ */
+final class ExecutorFactory {
+
+   public enum Kind {
+      SINGLE_THREAD,
+      FIXED,
+      CACHED,
+      SCHEDULED,
+      WORK_STEALING,
+      VIRTUAL_PER_TASK
+   }
+
+   private ExecutorFactory() {
+   }
+
+   static MeteredExecutorService create(Kind kind, int threads) {
+      return create(kind, threads, 0);
+   }
+
+   static MeteredExecutorService create(Kind kind, int threads, int queueCapacity) {
+      ExecutorService delegate;
+      switch (kind) {
+         case SINGLE_THREAD:
+            delegate = threadPool(1, queueCapacity);
+            break;
+         case FIXED:
+            delegate = threadPool(threads, queueCapacity);
+            break;
+         case CACHED:
+            delegate = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>());
+            break;
+         case SCHEDULED:
+            return createScheduled(threads);
+         case WORK_STEALING:
+            delegate = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+            break;
+         case VIRTUAL_PER_TASK:
+            delegate = Executors.newVirtualThreadPerTaskExecutor();
+            break;
+         default:
+            throw new IllegalArgumentException("Unknown executor kind: " + kind);
+      }
+      return new MeteredExecutorService(kind, delegate);
+   }
+
+   static MeteredScheduledExecutorService createScheduled(int threads) {
+      return new MeteredScheduledExecutorService(new ScheduledThreadPoolExecutor(threads));
+   }
+
+   private static ThreadPoolExecutor threadPool(int threads, int queueCapacity) {
+      BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new LinkedBlockingQueue<>();
+      return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue);
+   }
+}
+
+/**
+ * ExecutorService wrapper that measures every task it runs.
+ *
+ * Per pool:
+ * - Queue depth: tasks accepted but not started yet (same meaning for every kind)
+ * - Wait time: from execute() until a worker starts the task
+ * - Run time: how long the task itself ran
+ * - Steal count: tasks a ForkJoinPool worker took from another worker or from
+ *   the external submission queues (WORK_STEALING only, 0 for the others)
+ * - Rejections: tasks the pool refused (bounded queue full, or shut down)
+ *
+ * Timings go into a small stripe of LatencyHistograms picked by thread id,
+ * so workers rarely write to the same histogram; stats() merges them.
+ */
+class MeteredExecutorService extends AbstractExecutorService {
+
+   /**
+    * Snapshot of one pool's metrics.
+    */
+   record PoolStats(ExecutorFactory.Kind kind, long submitted, long completed, long rejected,
+                    long queueDepth, long steals, LatencyHistogram waitTime, LatencyHistogram runTime) {
+      @Override
+      public String toString() {
+         return kind + ": submitted=" + submitted + " completed=" + completed + " rejected=" + rejected
+               + " queueDepth=" + queueDepth + " steals=" + steals
+               + "\n  wait: " + waitTime + "\n  run:  " + runTime;
+      }
+   }
+
+   private final ExecutorFactory.Kind kind;
+   private final ExecutorService delegate;
+   private final StripedCounter submitted = new StripedCounter();
+   private final StripedCounter started = new StripedCounter();
+   private final StripedCounter completed = new StripedCounter();
+   private final StripedCounter rejected = new StripedCounter();
+   private final LatencyHistogram[] waitTimes;
+   private final LatencyHistogram[] runTimes;
+   private final int stripeMask;
+
+   MeteredExecutorService(ExecutorFactory.Kind kind, ExecutorService delegate) {
+      this.kind = kind;
+      this.delegate = delegate;
+      int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+      this.stripeMask = stripes - 1;
+      this.waitTimes = new LatencyHistogram[stripes];
+      this.runTimes = new LatencyHistogram[stripes];
+      for (int i = 0; i < stripes; i++) {
+         waitTimes[i] = new LatencyHistogram();
+         runTimes[i] = new LatencyHistogram();
+      }
+   }
+
+   @Override
+   public void execute(Runnable task) {
+      long submittedAt = System.nanoTime();
+      submitted.increment();
+      try {
+         delegate.execute(() -> measure(task, submittedAt));
+      } catch (RejectedExecutionException e) {
+         rejected.increment();
+         throw e;
+      }
+   }
+
+   /** Runs task on a worker, recording the wait since readyAt (when it could have started) and the run time. */
+   void measure(Runnable task, long readyAt) {
+      long startedAt = taskStarted(readyAt);
+      try {
+         task.run();
+      } finally {
+         taskFinished(startedAt);
+      }
+   }
+
+   /** Call on the worker right before the task runs; returns the start time for taskFinished(). */
+   long taskStarted(long readyAt) {
+      long startedAt = System.nanoTime();
+      started.increment();
+      waitTimes[stripe()].recordConcurrent(Math.max(0, startedAt - readyAt));
+      return startedAt;
+   }
+
+   void taskFinished(long startedAt) {
+      runTimes[stripe()].recordConcurrent(System.nanoTime() - startedAt);
+      completed.increment();
+   }
+
+   /** Counts a task that was accepted outside execute() (scheduled runs). */
+   void accepted() {
+      submitted.increment();
+   }
+
+   /** Counts a task the delegate refused outside execute(). */
+   void rejected() {
+      rejected.increment();
+   }
+
+   public PoolStats stats() {
+      LatencyHistogram waitTime = new LatencyHistogram();
+      LatencyHistogram runTime = new LatencyHistogram();
+      for (int i = 0; i <= stripeMask; i++) {
+         waitTimes[i].addTo(waitTime);
+         runTimes[i].addTo(runTime);
+      }
+      long accepted = submitted.getCount() - rejected.getCount();
+      long steals = delegate instanceof ForkJoinPool pool ? pool.getStealCount() : 0;
+      return new PoolStats(kind, submitted.getCount(), completed.getCount(), rejected.getCount(),
+            Math.max(0, accepted - started.getCount()), steals, waitTime, runTime);
+   }
+
+   public ExecutorFactory.Kind kind() {
+      return kind;
+   }
+
+   @Override
+   public void shutdown() {
+      delegate.shutdown();
+   }
+
+   @Override
+   public List<Runnable> shutdownNow() {
+      return delegate.shutdownNow();
+   }
+
+   @Override
+   public boolean isShutdown() {
+      return delegate.isShutdown();
+   }
+
+   @Override
+   public boolean isTerminated() {
+      return delegate.isTerminated();
+   }
+
+   @Override
+   public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return delegate.awaitTermination(timeout, unit);
+   }
+
+   private int stripe() {
+      return (int) (Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L >>> 32) & stripeMask;
+   }
+}
+
+/**
+ * MeteredExecutorService for the SCHEDULED kind: keeps schedule(),
+ * scheduleAtFixedRate() and scheduleWithFixedDelay().
+ *
+ * For a scheduled run, wait time is the lateness: from the moment the run was
+ * due until a worker started it. A delayed task counts in queue depth until
+ * it starts; every run of a periodic task counts as one submitted task when
+ * it starts, so a periodic task between runs is not in the queue depth.
+ */
+class MeteredScheduledExecutorService extends MeteredExecutorService implements ScheduledExecutorService {
+   private final ScheduledExecutorService scheduler;
+
+   MeteredScheduledExecutorService(ScheduledExecutorService scheduler) {
+      super(ExecutorFactory.Kind.SCHEDULED, scheduler);
+      this.scheduler = scheduler;
+   }
+
+   @Override
+   public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+      long dueAt = System.nanoTime() + unit.toNanos(delay);
+      accepted();
+      try {
+         return scheduler.schedule(() -> measure(command, dueAt), delay, unit);
+      } catch (RejectedExecutionException e) {
+         rejected();
+         throw e;
+      }
+   }
+
+   @Override
+   public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+      long dueAt = System.nanoTime() + unit.toNanos(delay);
+      accepted();
+      try {
+         return scheduler.schedule(() -> {
+            long startedAt = taskStarted(dueAt);
+            try {
+               return callable.call();
+            } finally {
+               taskFinished(startedAt);
+            }
+         }, delay, unit);
+      } catch (RejectedExecutionException e) {
+         rejected();
+         throw e;
+      }
+   }
+
+   @Override
+   public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+      long periodNanos = unit.toNanos(period);
+      return schedulePeriodic(command, unit.toNanos(initialDelay),
+            dueAt -> dueAt + periodNanos, wrapped -> scheduler.scheduleAtFixedRate(wrapped, initialDelay, period, unit));
+   }
+
+   @Override
+   public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+      long delayNanos = unit.toNanos(delay);
+      return schedulePeriodic(command, unit.toNanos(initialDelay),
+            dueAt -> System.nanoTime() + delayNanos, wrapped -> scheduler.scheduleWithFixedDelay(wrapped, initialDelay, delay, unit));
+   }
+
+   /**
+    * @param nextDue due time of the next run, given the due time of the run that just finished
+    */
+   private ScheduledFuture<?> schedulePeriodic(Runnable command, long initialDelayNanos, LongUnaryOperator nextDue,
+         Function<Runnable, ScheduledFuture<?>> submit) {
+      long[] dueAt = new long[1];  // Runs of one periodic task never overlap, and each happens-before the next
+      Runnable run = () -> {
+         accepted();
+         try {
+            measure(command, dueAt[0]);
+         } finally {
+            dueAt[0] = nextDue.applyAsLong(dueAt[0]);
+         }
+      };
+      // Fixed-rate runs keep any offset between this and the scheduler's own start time: take it as late as possible
+      dueAt[0] = System.nanoTime() + initialDelayNanos;
+      try {
+         return submit.apply(run);
+      } catch (RejectedExecutionException e) {
+         accepted();
+         rejected();
+         throw e;
+      }
+   }
+}
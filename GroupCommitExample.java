@@ -0,0 +1,198 @@
+package MultithreadingInJava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 🎯 QUICK GUIDE: Group Commit
+ *
+ * 1. The problem:
+ *    - LockBasedSbiAccount / SbiAccount take the lock, do the slow work
+ *      (2 seconds) and release it for every single withdrawal
+ *    - N customers arriving together are served one after the other: N x 2 s
+ *
+ * 2. The idea (same as group commit in databases):
+ *    - Withdrawals that arrive while one operation is in flight are queued
+ *    - The next thread to get the lock becomes the "leader" and applies the
+ *      whole queue as one batch: one lock acquisition, one slow round trip
+ *    - Every caller still gets its own result (success or insufficient funds)
+ *
+ * 3. Expected behaviour of main():
+ *    - The three customers end up in two batches (e.g. 2 + 1, depending on
+ *      who reaches the queue before the first leader drains it)
+ *    - Total time ~4 s instead of ~6 s; the gain grows with the burst size
+ */
+public class GroupCommitExample {
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
+   public static void main(String[] args) throws InterruptedException {
+      GroupCommitSbiAccount sbiAccount = new GroupCommitSbiAccount();
+
+      Runnable task = () -> {
+         boolean approved = sbiAccount.withdrawAmount(500);
+         LOG.log(approved ? "withdrawal approved" : "insufficient balance");
+      };
+
+      long start = System.nanoTime();
+      Thread t1 = new Thread(task, "Pankaj ");
+      Thread t2 = new Thread(task, "Pradeep");
+      Thread t3 = new Thread(task, "Shyam");
+      t1.start();
+      t2.start();
+      t3.start();
+      t1.join();
+      t2.join();
+      t3.join();
+      LOG.log("All withdrawals done, ms: ", (System.nanoTime() - start) / 1_000_000);
+      LOG.log("Remaining balance is ", sbiAccount.getBalance());
+   }
+}
+
+/**
+ * Bank account that commits concurrent withdrawals in batches.
+ *
+ * Protocol (leader/follower):
+ * 1. A caller enqueues its Withdrawal and tries to get the lock
+ * 2. If it gets it, it is the leader: it drains the queue, applies every
+ *    withdrawal in arrival order, does the slow work once and wakes the callers
+ * 3. If it does not, it parks until a leader has completed its withdrawal or
+ *    wakes it up to lead the next batch
+ * 4. A leader always wakes the head of the queue after unlocking, so a queued
+ *    withdrawal is never left without a leader
+ */
+class GroupCommitSbiAccount implements Account {
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
+   private int balance;  // Protected by lock
+
+   private final ReentrantLock lock = new ReentrantLock();
+   private final ConcurrentLinkedQueue<Withdrawal> pending = new ConcurrentLinkedQueue<>();
+
+   // Withdrawal requests are reused: each caller returns its own after reading the result
+   private final ObjectPool<Withdrawal> withdrawals = new ObjectPool<>(Withdrawal::new, Withdrawal::clear);
+   private final List<Withdrawal> batch = new ArrayList<>();  // Reused by the leader, protected by lock
+
+   // Simulated processing time of one batch (2 seconds in the example)
+   private final long processingMillis;
+
+   /**
+    * One queued withdrawal and the thread waiting for its result. Pooled, so
+    * the fields are set per request instead of in a constructor.
+    */
+   private static final class Withdrawal {
+      int amount;
+      Thread waiter;
+      boolean approved;        // Written by the leader before done is set
+      volatile boolean done;
+
+      Withdrawal init(int amount) {
+         this.amount = amount;
+         this.waiter = Thread.currentThread();
+         this.approved = false;
+         this.done = false;
+         return this;
+      }
+
+      void clear() {
+         waiter = null;  // Do not keep a finished thread reachable from the pool
+      }
+   }
+
+   GroupCommitSbiAccount() {
+      this(1000, 2000);
+   }
+
+   GroupCommitSbiAccount(int balance, long processingMillis) {
+      this.balance = balance;
+      this.processingMillis = processingMillis;
+   }
+
+   @Override
+   public boolean withdrawAmount(int amount) {
+      Withdrawal withdrawal = withdrawals.acquire().init(amount);
+      pending.add(withdrawal);
+      boolean interrupted = false;
+      while (!withdrawal.done) {
+         if (lock.tryLock()) {
+            try {
+               if (!withdrawal.done) {
+                  commitBatch();
+               }
+            } finally {
+               unlockAndWakeNextLeader();
+            }
+         } else {
+            LockSupport.park(this);
+            // Like lock(), waiting is not interruptible; the flag is restored below
+            interrupted |= Thread.interrupted();
+         }
+      }
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+      boolean approved = withdrawal.approved;
+      withdrawals.release(withdrawal);
+      return approved;
+   }
+
+   ObjectPool.Stats withdrawalPoolStats() {
+      return withdrawals.stats();
+   }
+
+   /**
+    * Applies everything queued so far as one batch. Caller holds the lock.
+    */
+   private void commitBatch() {
+      batch.clear();
+      for (Withdrawal next; (next = pending.poll()) != null; ) {
+         next.approved = balance >= next.amount;
+         if (next.approved) {
+            balance -= next.amount;
+         }
+         batch.add(next);
+      }
+      LOG.log("committing a batch of withdrawals: ", batch.size());
+      try {
+         // One slow round trip for the whole batch
+         if (processingMillis > 0) {
+            Thread.sleep(processingMillis);
+         }
+      }
+      catch (InterruptedException ignored) {
+         Thread.currentThread().interrupt();
+      }
+      LOG.log("Remaining balance is ", balance);
+      for (Withdrawal withdrawal : batch) {
+         // Read waiter first: once done is set the caller may recycle the Withdrawal
+         Thread waiter = withdrawal.waiter;
+         withdrawal.done = true;
+         LockSupport.unpark(waiter);
+      }
+      batch.clear();
+   }
+
+   // Every lock holder releases through here: a withdrawer that failed tryLock() meanwhile
+   // is parked without a timeout, and whoever is first in the queue leads the next batch
+   private void unlockAndWakeNextLeader() {
+      lock.unlock();
+      Withdrawal head = pending.peek();
+      Thread waiter = head == null ? null : head.waiter;
+      if (waiter != null) {
+         // head may have completed and been recycled meanwhile; a stray unpark is harmless
+         LockSupport.unpark(waiter);
+      }
+   }
+
+   @Override
+   public int getBalance() {
+      lock.lock();
+      try {
+         return balance;
+      } finally {
+         unlockAndWakeNextLeader();
+      }
+   }
+}
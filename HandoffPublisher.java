@@ -0,0 +1,249 @@
+package MultithreadingInJava;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking, reactive version of the SharedResource handoff
+ * (ThreadCommunicationExample.java): a java.util.concurrent.Flow.Publisher
+ * where every item goes to exactly ONE subscriber, like producer()/consumer().
+ *
+ * Why? SharedResource parks a platform thread per consumer in wait() - 1,000
+ * consumers are 1,000 threads doing nothing. Here nobody waits:
+ * - The producer calls offer(); it returns false instead of blocking when the
+ *   buffer is full (backpressure on the producer)
+ * - Subscribers say how much they can take with request(n); an idle
+ *   subscriber is a queue entry, not a thread
+ * - Delivery runs as short tasks on an Executor (default: the common
+ *   ForkJoinPool), so 1,000 subscribers share a handful of threads
+ *
+ * How:
+ * 1. Items wait in a bounded MPMC RingBuffer
+ * 2. A subscription with demand but nothing to deliver parks itself in the
+ *    "hungry" queue - register first, then re-check the buffer, so an item
+ *    offered in between is never missed (same rule as Waiters)
+ * 3. offer() puts the item in the buffer and schedules one hungry subscription
+ * 4. A scheduled subscription delivers up to min(demand, maxBatch) items in
+ *    one run, then re-submits itself behind the other tasks, so subscribers
+ *    take turns in batches (with a FIFO executor; the common pool runs a
+ *    worker's own submissions first). A WIP counter guarantees one run at a
+ *    time per subscriber (Flow rule: signals to a subscriber are never concurrent)
+ *
+ * close() completes every subscriber once the buffer is empty. It first waits
+ * for offers already past the closed check (a StripedCounter of in-flight
+ * offers), so an offer() that returned true is always delivered.
+ *
+ * Interview Tip: this is the demand-driven "push-pull" model of Reactive
+ * Streams - the subscriber controls the flow with request(n), so a slow
+ * subscriber never gets flooded and a fast one never blocks.
+ */
+class HandoffPublisher implements Flow.Publisher<Integer>, AutoCloseable {
+   static final int DEFAULT_MAX_BATCH = 64;
+
+   private final RingBuffer<Integer> buffer;
+   private final Executor executor;
+   private final int maxBatch;
+   private final ConcurrentLinkedQueue<Delivery> hungry = new ConcurrentLinkedQueue<>();
+   private final ConcurrentLinkedQueue<Delivery> subscriptions = new ConcurrentLinkedQueue<>();
+   private final StripedCounter offering = new StripedCounter();  // offer() calls between the closed check and the enqueue
+   private final WaitStrategy closeWait = WaitStrategy.yielding();
+   private volatile boolean closed;  // No new offers
+   private volatile boolean sealed;  // Closed and no offer in flight: an empty buffer now means "complete"
+
+   HandoffPublisher(int capacity) {
+      this(capacity, ForkJoinPool.commonPool(), DEFAULT_MAX_BATCH);
+   }
+
+   /**
+    * @param capacity buffered items before offer() returns false; a power of two
+    * @param maxBatch items delivered to one subscriber per executor task
+    */
+   HandoffPublisher(int capacity, Executor executor, int maxBatch) {
+      if (maxBatch < 1) {
+         throw new IllegalArgumentException("maxBatch must be positive: " + maxBatch);
+      }
+      this.buffer = new RingBuffer<>(capacity, RingBuffer.Mode.MPMC);
+      this.executor = executor;
+      this.maxBatch = maxBatch;
+   }
+
+   /**
+    * Hands an item to the next subscriber with demand. Never blocks.
+    *
+    * @return false if the buffer is full (retry later) or the publisher is closed
+    */
+   boolean offer(int item) {
+      offering.increment();
+      try {
+         if (closed || !buffer.offer(item)) {
+            return false;
+         }
+      } finally {
+         offering.add(-1);
+      }
+      wakeOne();
+      return true;
+   }
+
+   /** Items offered but not delivered yet. */
+   int buffered() {
+      return buffer.size();
+   }
+
+   @Override
+   public void subscribe(Flow.Subscriber<? super Integer> subscriber) {
+      Objects.requireNonNull(subscriber);
+      Delivery delivery = new Delivery(subscriber);
+      subscriptions.add(delivery);
+      subscriber.onSubscribe(delivery);
+      if (sealed) {
+         delivery.schedule();  // Complete it once the buffer is drained
+      }
+   }
+
+   /** No more items: every subscriber gets onComplete() after the buffer drains. */
+   @Override
+   public void close() {
+      closed = true;
+      // Either an offer sees closed, or we see it in flight and wait for its item to land
+      for (int idleCount = 0; offering.getCount() != 0; idleCount++) {
+         closeWait.idle(idleCount);
+      }
+      sealed = true;
+      for (Delivery delivery : subscriptions) {
+         delivery.schedule();
+      }
+   }
+
+   /** Schedules the longest-waiting hungry subscription that still has demand. */
+   private void wakeOne() {
+      Delivery delivery;
+      while ((delivery = hungry.poll()) != null) {
+         delivery.queued.set(false);
+         if (!delivery.cancelled && delivery.demand.get() > 0) {
+            delivery.schedule();
+            return;
+         }
+      }
+   }
+
+   /** A subscriber left: if items are waiting, schedule another hungry subscriber for them. */
+   private void handOver() {
+      if (buffer.size() > 0) {
+         wakeOne();
+      }
+   }
+
+   /** One subscriber's subscription and its delivery task. */
+   private final class Delivery implements Flow.Subscription, Runnable {
+      final Flow.Subscriber<? super Integer> subscriber;
+      final AtomicLong demand = new AtomicLong();
+      final AtomicInteger wip = new AtomicInteger();         // Scheduled runs; only 0 -> 1 submits a task
+      final AtomicBoolean queued = new AtomicBoolean();      // In the hungry queue
+      volatile boolean cancelled;
+      volatile Throwable error;                              // Set by request(n <= 0), signalled by run()
+      boolean done;                                          // Only touched by the running task
+
+      Delivery(Flow.Subscriber<? super Integer> subscriber) {
+         this.subscriber = subscriber;
+      }
+
+      @Override
+      public void request(long n) {
+         if (n <= 0) {
+            // Flow rule 3.9; onError is sent by run() so it never overlaps an onNext
+            error = new IllegalArgumentException("request(n) needs n > 0, got " + n);
+            schedule();
+            return;
+         }
+         demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+         schedule();
+      }
+
+      @Override
+      public void cancel() {
+         cancelled = true;
+         subscriptions.remove(this);
+      }
+
+      void schedule() {
+         if (wip.getAndIncrement() == 0) {
+            executor.execute(this);
+         }
+      }
+
+      @Override
+      public void run() {
+         int missed = 1;
+         while (true) {
+            if (done) {
+               return;
+            }
+            if (cancelled) {
+               handOver();  // Flow rule 3.6: no more signals; leave the buffered items to the others
+               return;
+            }
+            Throwable failed = error;
+            if (failed != null) {
+               done = true;
+               cancel();
+               subscriber.onError(failed);
+               return;
+            }
+            long requested = demand.get();
+            int delivered = 0;
+            Integer item;
+            // Re-check cancelled per item: onNext may cancel, and a polled item must go to a live subscriber
+            while (delivered < requested && delivered < maxBatch && !cancelled && (item = buffer.poll()) != null) {
+               try {
+                  subscriber.onNext(item);
+               } catch (Throwable e) {
+                  cancel();  // A subscriber must not throw: drop it
+                  subscriber.onError(e);
+                  handOver();
+                  return;
+               }
+               delivered++;
+            }
+            if (cancelled) {
+               handOver();
+               return;
+            }
+            if (delivered > 0 && requested != Long.MAX_VALUE) {
+               demand.addAndGet(-delivered);
+            }
+            if (sealed && buffer.size() == 0) {
+               done = true;
+               subscriptions.remove(this);
+               subscriber.onComplete();
+               return;
+            }
+            if (delivered == maxBatch && demand.get() > 0) {
+               executor.execute(this);  // Still holding wip: go to the back of the executor queue, let others run
+               return;
+            }
+            if (demand.get() > 0) {
+               // Out of items but still hungry: register, then re-check (offer() may have just missed us)
+               if (queued.compareAndSet(false, true)) {
+                  hungry.add(this);
+               }
+               if (buffer.size() > 0) {
+                  continue;
+               }
+            } else if (buffer.size() > 0) {
+               wakeOne();  // Out of demand with items left: let another subscriber take them
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+               return;
+            }
+         }
+      }
+   }
+}
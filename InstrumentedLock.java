@@ -0,0 +1,171 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Drop-in {@link Lock} that measures how the wrapped lock is used.
+ *
+ * What it records (per lock):
+ * 1. Wait time: from calling lock() until the lock is acquired
+ * 2. Hold time: from the outermost acquisition until the matching unlock()
+ * 3. Contention count: acquisitions that could not get the lock immediately
+ *
+ * Why per-thread histograms?
+ * - Every thread records into its own LatencyHistogram (single writer, plain
+ *   opaque stores), so measuring adds no shared writes and no CAS
+ * - stats() merges all per-thread histograms on read
+ * - After a thread's first use the fast path allocates nothing, so it can
+ *   stay enabled in production
+ *
+ * Notes:
+ * - The uncontended check uses tryLock(0, NANOSECONDS), which respects the
+ *   fairness of a fair ReentrantLock (plain tryLock() would barge)
+ * - Time spent in Condition.await() counts as hold time
+ * - Every thread that ever used the lock keeps its (~8 KB) histograms; wrap
+ *   locks used by millions of short-lived virtual threads with care
+ */
+class InstrumentedLock implements Lock {
+
+   /**
+    * Snapshot of the merged statistics.
+    */
+   record Stats(long acquisitions, long contended, LatencyHistogram waitTime, LatencyHistogram holdTime) {
+      @Override
+      public String toString() {
+         return "acquisitions=" + acquisitions + " contended=" + contended
+               + "\n  wait: " + waitTime + "\n  hold: " + holdTime;
+      }
+   }
+
+   // Everything one thread records for this lock
+   private static final class ThreadRecorder {
+      final LatencyHistogram waitTime = new LatencyHistogram();
+      final LatencyHistogram holdTime = new LatencyHistogram();
+      volatile long contended;  // Single writer
+      int holdDepth;            // Reentrancy depth, owner thread only
+      long acquiredAtNanos;
+   }
+
+   private static final long NOT_WAITED = Long.MIN_VALUE;
+
+   private final Lock delegate;
+   private final ConcurrentLinkedQueue<ThreadRecorder> recorders = new ConcurrentLinkedQueue<>();
+   private final ThreadLocal<ThreadRecorder> recorder = ThreadLocal.withInitial(() -> {
+      ThreadRecorder created = new ThreadRecorder();
+      recorders.add(created);
+      return created;
+   });
+
+   InstrumentedLock(Lock delegate) {
+      this.delegate = delegate;
+   }
+
+   @Override
+   public void lock() {
+      ThreadRecorder r = recorder.get();
+      // lock() is not interruptible: clear the flag so it cannot turn the fast path into "contended", restore it at the end
+      boolean interrupted = Thread.interrupted();
+      try {
+         while (true) {
+            try {
+               if (delegate.tryLock(0, TimeUnit.NANOSECONDS)) {  // Unlike tryLock(), this honours a fair delegate
+                  acquired(r, NOT_WAITED);
+                  return;
+               }
+               break;
+            } catch (InterruptedException e) {
+               interrupted = true;  // Interrupted just now: the lock state is still unknown, try again
+            }
+         }
+         r.contended++;
+         long start = System.nanoTime();
+         delegate.lock();
+         acquired(r, start);
+      } finally {
+         if (interrupted) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+
+   @Override
+   public void lockInterruptibly() throws InterruptedException {
+      ThreadRecorder r = recorder.get();
+      if (delegate.tryLock(0, TimeUnit.NANOSECONDS)) {
+         acquired(r, NOT_WAITED);
+         return;
+      }
+      r.contended++;
+      long start = System.nanoTime();
+      delegate.lockInterruptibly();
+      acquired(r, start);
+   }
+
+   @Override
+   public boolean tryLock() {
+      ThreadRecorder r = recorder.get();
+      if (!delegate.tryLock()) {
+         r.contended++;
+         return false;
+      }
+      acquired(r, NOT_WAITED);
+      return true;
+   }
+
+   @Override
+   public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+      ThreadRecorder r = recorder.get();
+      if (delegate.tryLock(0, TimeUnit.NANOSECONDS)) {
+         acquired(r, NOT_WAITED);
+         return true;
+      }
+      r.contended++;
+      long start = System.nanoTime();
+      if (!delegate.tryLock(time, unit)) {
+         return false;
+      }
+      acquired(r, start);
+      return true;
+   }
+
+   @Override
+   public void unlock() {
+      ThreadRecorder r = recorder.get();
+      if (r.holdDepth > 0 && --r.holdDepth == 0) {
+         r.holdTime.record(System.nanoTime() - r.acquiredAtNanos);
+      }
+      delegate.unlock();
+   }
+
+   @Override
+   public Condition newCondition() {
+      return delegate.newCondition();
+   }
+
+   /**
+    * Merges the statistics of every thread that used this lock.
+    */
+   public Stats stats() {
+      LatencyHistogram waitTime = new LatencyHistogram();
+      LatencyHistogram holdTime = new LatencyHistogram();
+      long contended = 0;
+      for (ThreadRecorder r : recorders) {
+         r.waitTime.addTo(waitTime);
+         r.holdTime.addTo(holdTime);
+         contended += r.contended;
+      }
+      return new Stats(waitTime.count(), contended, waitTime, holdTime);
+   }
+
+   // startNanos is NOT_WAITED when the lock was free: one clock read on the fast path
+   private static void acquired(ThreadRecorder r, long startNanos) {
+      if (r.holdDepth++ == 0) {
+         long now = System.nanoTime();
+         r.waitTime.record(startNanos == NOT_WAITED ? 0 : now - startNanos);
+         r.acquiredAtNanos = now;
+      }
+   }
+}
@@ -0,0 +1,129 @@
+package MultithreadingInJava;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed-size log-linear histogram of nanosecond durations.
+ *
+ * Buckets:
+ * - Values 0..7 get one bucket each
+ * - Above that, every power of two is split into 8 sub-buckets, so a
+ *   percentile is reported with at most ~12.5% error over the full long range
+ *
+ * Threading:
+ * - record() is meant for a single writer thread (no CAS, no allocation);
+ *   counts are written with opaque stores so other threads can read them
+ * - recordConcurrent() may be called by any number of threads (atomic adds);
+ *   spread writers over several histograms to keep contention low
+ * - Readers merge any number of histograms with addTo() and query the result
+ */
+class LatencyHistogram {
+   private static final int SUB_BUCKET_BITS = 3;
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+   static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+   private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(long[].class);
+   private static final VarHandle MAX_VALUE;
+
+   static {
+      try {
+         MAX_VALUE = MethodHandles.lookup().findVarHandle(LatencyHistogram.class, "maxValue", long.class);
+      } catch (ReflectiveOperationException e) {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
+   private final long[] counts = new long[BUCKETS];
+   private long maxValue;  // Plain for record(), CAS for recordConcurrent(); read racily for reporting
+
+   /**
+    * Records one value. Single writer only.
+    */
+   public void record(long nanos) {
+      int index = bucketIndex(Math.max(0, nanos));
+      COUNTS.setOpaque(counts, index, (long) COUNTS.getOpaque(counts, index) + 1);
+      if (nanos > maxValue) {
+         maxValue = nanos;
+      }
+   }
+
+   /**
+    * Records one value. Safe for concurrent writers.
+    */
+   public void recordConcurrent(long nanos) {
+      COUNTS.getAndAdd(counts, bucketIndex(Math.max(0, nanos)), 1L);
+      long max;
+      while (nanos > (max = (long) MAX_VALUE.getVolatile(this))
+            && !MAX_VALUE.compareAndSet(this, max, nanos)) {
+         Thread.onSpinWait();
+      }
+   }
+
+   /**
+    * Adds this histogram's counts into target (merge on read).
+    */
+   public void addTo(LatencyHistogram target) {
+      for (int i = 0; i < BUCKETS; i++) {
+         target.counts[i] += (long) COUNTS.getOpaque(counts, i);
+      }
+      target.maxValue = Math.max(target.maxValue, maxValue);
+   }
+
+   public long count() {
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         total += (long) COUNTS.getOpaque(counts, i);
+      }
+      return total;
+   }
+
+   public long max() {
+      return maxValue;
+   }
+
+   /**
+    * @param percentile e.g. 50, 99, 99.9
+    * @return upper bound of the bucket holding that percentile, 0 if empty
+    */
+   public long percentile(double percentile) {
+      long total = count();
+      if (total == 0) {
+         return 0;
+      }
+      long rank = (long) Math.ceil(total * percentile / 100.0);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         seen += (long) COUNTS.getOpaque(counts, i);
+         if (seen >= Math.max(1, rank)) {
+            return Math.min(bucketUpperBound(i), maxValue);
+         }
+      }
+      return maxValue;
+   }
+
+   static int bucketIndex(long value) {
+      if (value < SUB_BUCKETS) {
+         return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+   }
+
+   static long bucketUpperBound(int index) {
+      if (index < SUB_BUCKETS) {
+         return index;
+      }
+      int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      long subBucket = index % SUB_BUCKETS;
+      long lower = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+      long width = 1L << (exponent - SUB_BUCKET_BITS);
+      return lower + width - 1;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("count=%d p50=%dns p99=%dns p99.9=%dns max=%dns",
+            count(), percentile(50), percentile(99), percentile(99.9), max());
+   }
+}
@@ -0,0 +1,213 @@
+package MultithreadingInJava;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 🎯 QUICK GUIDE: Lock Ordering at Scale
+ *
+ * RemovingDeadlockUsingLockOrdering.java fixes the deadlock for two hard-coded
+ * locks. A ledger has N accounts and every transfer needs two of them, so the
+ * rule becomes: "always lock accounts in ascending account id".
+ *
+ * 1. transfer(from, to, amount):
+ *    - Locks min(from, to) first, then max(from, to)
+ *    - Two transfers A->B and B->A can no longer wait on each other
+ *
+ * 2. transferAll(batch):
+ *    - Collects every account the batch touches, removes duplicates, sorts them
+ *    - Locks that merged set once, in id order, applies all transfers, unlocks
+ *    - Still only per-account locks: no global ledger lock
+ *
+ * 3. Why it can never deadlock:
+ *    - A deadlock needs a cycle of threads each waiting for a lock held by the next
+ *    - If everybody acquires in the same global order, the thread holding the
+ *      highest id in a would-be cycle is never waiting for a lower one: no cycle
+ */
+public class LedgerExample {
+   public static void main(String[] args) throws InterruptedException {
+      Ledger ledger = new Ledger(10, 1000);
+      long before = ledger.totalBalance();
+
+      // 8 threads move money in random directions, including A->B and B->A at the same time
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+         Thread thread = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 100_000; i++) {
+               ledger.transfer(random.nextInt(10), random.nextInt(10), random.nextInt(1, 50));
+            }
+         }, "Teller-" + t);
+         threads.add(thread);
+         thread.start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+      System.out.println("Total before: " + before + ", total after: " + ledger.totalBalance() + " (no deadlock, no money lost)");
+   }
+}
+
+/**
+ * A ledger of accounts addressed by a dense id (0..size-1), each with its own lock.
+ */
+class Ledger {
+
+   /**
+    * One requested transfer inside a transferAll() batch.
+    */
+   record Transfer(int from, int to, long amount) {
+   }
+
+   private static final class LedgerAccount {
+      final ReentrantLock lock = new ReentrantLock();
+      long balance;  // Protected by lock
+
+      LedgerAccount(long balance) {
+         this.balance = balance;
+      }
+   }
+
+   private final LedgerAccount[] accounts;
+
+   Ledger(int size, long initialBalance) {
+      accounts = new LedgerAccount[size];
+      for (int id = 0; id < size; id++) {
+         accounts[id] = new LedgerAccount(initialBalance);
+      }
+   }
+
+   public int size() {
+      return accounts.length;
+   }
+
+   /**
+    * Moves money between two accounts, locking them in ascending id order.
+    *
+    * @return false if the source account has insufficient balance
+    */
+   public boolean transfer(int from, int to, long amount) {
+      checkAmount(amount);
+      checkId(from);
+      checkId(to);
+      if (from == to) {
+         return true;
+      }
+      LedgerAccount first = accounts[Math.min(from, to)];
+      LedgerAccount second = accounts[Math.max(from, to)];
+      first.lock.lock();
+      try {
+         second.lock.lock();
+         try {
+            return apply(accounts[from], accounts[to], amount);
+         } finally {
+            second.lock.unlock();
+         }
+      } finally {
+         first.lock.unlock();
+      }
+   }
+
+   /**
+    * Applies a batch of transfers under one sorted, merged lock set.
+    * Transfers are applied in list order, so a later transfer can spend money
+    * credited by an earlier one in the same batch.
+    *
+    * @return per transfer: true if applied, false if rejected for insufficient balance
+    */
+   public boolean[] transferAll(List<Transfer> batch) {
+      int[] ids = new int[batch.size() * 2];
+      int n = 0;
+      for (Transfer transfer : batch) {
+         checkAmount(transfer.amount());
+         checkId(transfer.from());
+         checkId(transfer.to());
+         ids[n++] = transfer.from();
+         ids[n++] = transfer.to();
+      }
+      // Sort, then skip duplicates while locking: the merged lock set in global order
+      Arrays.sort(ids, 0, n);
+      int distinct = 0;
+      for (int i = 0; i < n; i++) {
+         if (distinct == 0 || ids[i] != ids[distinct - 1]) {
+            ids[distinct++] = ids[i];
+         }
+      }
+
+      int locked = 0;
+      try {
+         while (locked < distinct) {
+            accounts[ids[locked]].lock.lock();
+            locked++;
+         }
+         boolean[] results = new boolean[batch.size()];
+         for (int i = 0; i < results.length; i++) {
+            Transfer transfer = batch.get(i);
+            results[i] = transfer.from() == transfer.to()
+                  || apply(accounts[transfer.from()], accounts[transfer.to()], transfer.amount());
+         }
+         return results;
+      } finally {
+         // Release in reverse order of acquisition
+         for (int i = locked - 1; i >= 0; i--) {
+            accounts[ids[i]].lock.unlock();
+         }
+      }
+   }
+
+   public long balance(int id) {
+      LedgerAccount account = accounts[id];
+      account.lock.lock();
+      try {
+         return account.balance;
+      } finally {
+         account.lock.unlock();
+      }
+   }
+
+   /**
+    * Consistent total: locks every account (in id order), which stops all
+    * transfers while it runs. Meant for checks, not for hot paths.
+    */
+   public long totalBalance() {
+      int locked = 0;
+      try {
+         long total = 0;
+         for (LedgerAccount account : accounts) {
+            account.lock.lock();
+            locked++;
+            total += account.balance;
+         }
+         return total;
+      } finally {
+         for (int i = locked - 1; i >= 0; i--) {
+            accounts[i].lock.unlock();
+         }
+      }
+   }
+
+   // Caller holds both locks
+   private static boolean apply(LedgerAccount from, LedgerAccount to, long amount) {
+      if (from.balance < amount) {
+         return false;
+      }
+      from.balance -= amount;
+      to.balance += amount;
+      return true;
+   }
+
+   private void checkId(int id) {
+      if (id < 0 || id >= accounts.length) {
+         throw new IllegalArgumentException("Unknown account id: " + id);
+      }
+   }
+
+   private static void checkAmount(long amount) {
+      if (amount < 0) {
+         throw new IllegalArgumentException("Amount must not be negative: " + amount);
+      }
+   }
+}
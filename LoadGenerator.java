@@ -0,0 +1,579 @@
+package MultithreadingInJava;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 🎯 QUICK GUIDE: Load generator for the concurrency scenarios
+ *
+ * Every example's main() runs a fixed amount of work and prints prose; this
+ * runs any scenario for a fixed TIME, with a chosen number of threads and
+ * operation mix, and prints one JSON document: throughput and latency
+ * percentiles, overall and per operation. Runs can then be diffed across
+ * JVMs, machines and implementations.
+ *
+ * Usage:
+ *    java -cp target/classes MultithreadingInJava.LoadGenerator --scenario=account --impl=reentrantLock
+ *         --threads=16 --duration=10s --warmup=2s --mix=withdraw:90,balance:10 [--out=result.json]
+ *
+ * Scenarios (--impl values, first is the default; --mix operations):
+ *    counter      atomic | striped                          increment, read
+ *    account      synchronized | reentrantLock | nonPinning | groupCommit | offHeap
+ *                                                           withdraw, balance   (--accounts=N, default 1)
+ *    readwrite    READ_WRITE_LOCK | OPTIMISTIC_READ | RCU   read, write
+ *    handoff      ringBuffer | blockingQueue                transfer (half the threads produce, half consume)
+ *    threadpool   FIXED | WORK_STEALING | CACHED | VIRTUAL_PER_TASK
+ *                                                           task        (submit + wait; --poolThreads=N)
+ *    virtual      virtual | platform                        task        (start a thread + join it)
+ *
+ * How it measures:
+ * 1. Every worker thread picks an operation by the mix weights, times it with
+ *    System.nanoTime() and records it in its own LatencyHistogram (no shared
+ *    writes while measuring)
+ * 2. Nothing is recorded during warmup (JIT compilation, pool start-up)
+ * 3. After the measured window the histograms are merged and reported; the
+ *    two nanoTime() calls (~50 ns) are part of every latency
+ *
+ * The examples log through AsyncLogger; that output is discarded so stdout
+ * only carries the JSON (and the logger drops lines instead of making the
+ * workers wait for its flusher). offHeap needs java --enable-preview.
+ *
+ * A worker that is still inside an operation 5 s after the run ended is
+ * reported as stuck: "stuckWorkers" in the JSON, its stack on stderr and
+ * exit code 2 (a hang in the scenario, not a slow operation).
+ *
+ * Interview Tip: report percentiles, not averages - a lock convoy or a GC
+ * pause shows up in p99/p99.9 long before it moves the mean.
+ */
+public class LoadGenerator {
+
+   /**
+    * One scenario under load. run() is called concurrently by all workers.
+    */
+   interface Scenario extends AutoCloseable {
+
+      /** Operation names and their default weights, in a stable order. */
+      Map<String, Integer> defaultMix();
+
+      /**
+       * Runs one operation.
+       *
+       * @param op     index into defaultMix()
+       * @param worker index of the calling worker thread
+       * @return false if the operation did not complete (timed out, rejected by the pool)
+       */
+      boolean run(int op, int worker) throws Exception;
+
+      @Override
+      default void close() throws Exception {
+      }
+   }
+
+   private volatile boolean running = true;
+   private volatile boolean recording;
+   private final AtomicReference<Exception> failure = new AtomicReference<>();  // First failed operation ends the run
+
+   private static final long STOP_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+   public static void main(String[] args) throws Exception {
+      Map<String, String> options = parse(args);
+      PrintStream out = System.out;
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));  // Example logging would corrupt the JSON
+      if (System.getProperty("multithreading.log.policy") == null) {
+         System.setProperty("multithreading.log.policy", "DROP");  // Before the shared logger exists
+      }
+      LoadGenerator generator = new LoadGenerator();
+      String json = generator.run(options);
+      if (options.containsKey("out")) {
+         java.nio.file.Files.writeString(java.nio.file.Path.of(options.get("out")), json + System.lineSeparator());
+      }
+      out.println(json);
+      if (!generator.stuck.isEmpty()) {
+         System.exit(2);  // The stuck workers are daemons, but the scenario may hold other threads
+      }
+   }
+
+   private final List<Thread> stuck = new ArrayList<>();
+
+   /** Runs the scenario described by options and returns the JSON report. */
+   String run(Map<String, String> options) throws Exception {
+      String scenarioName = options.getOrDefault("scenario", "counter");
+      int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+      long warmupNanos = parseDuration(options.getOrDefault("warmup", "2s"));
+      long durationNanos = parseDuration(options.getOrDefault("duration", "10s"));
+      if (threads < 1) {
+         throw new IllegalArgumentException("--threads must be positive: " + threads);
+      }
+
+      try (Scenario scenario = createScenario(scenarioName, options, threads)) {
+         List<String> operations = new ArrayList<>(scenario.defaultMix().keySet());
+         int[] weights = mix(scenario.defaultMix(), options.get("mix"));
+         int totalWeight = 0;
+         for (int weight : weights) {
+            totalWeight += weight;
+         }
+
+         LatencyHistogram[][] histograms = new LatencyHistogram[threads][operations.size()];
+         long[][] failures = new long[threads][operations.size()];
+         Thread[] workers = new Thread[threads];
+         for (int w = 0; w < threads; w++) {
+            for (int op = 0; op < operations.size(); op++) {
+               histograms[w][op] = new LatencyHistogram();
+            }
+            int worker = w;
+            int total = totalWeight;
+            workers[w] = new Thread(() -> work(scenario, worker, weights, total, histograms[worker], failures[worker]),
+                  "load-" + scenarioName + "-" + w);
+            workers[w].setDaemon(true);  // A hung operation must not keep the JVM alive
+            workers[w].start();
+         }
+
+         sleepUnlessFailed(warmupNanos);
+         recording = true;
+         long start = System.nanoTime();
+         sleepUnlessFailed(durationNanos);
+         recording = false;
+         long elapsed = System.nanoTime() - start;
+         running = false;
+         long stopDeadline = System.nanoTime() + STOP_TIMEOUT_NANOS;
+         for (Thread worker : workers) {
+            TimeUnit.NANOSECONDS.timedJoin(worker, Math.max(1, stopDeadline - System.nanoTime()));
+            if (worker.isAlive()) {
+               stuck.add(worker);
+               System.err.println("Stuck worker " + worker.getName() + " (" + worker.getState() + "):");
+               for (StackTraceElement frame : worker.getStackTrace()) {
+                  System.err.println("\tat " + frame);
+               }
+            }
+         }
+         if (failure.get() != null) {
+            throw new IllegalStateException("Scenario " + scenarioName + " failed, no report", failure.get());
+         }
+         // A stuck worker's last operation is missing from the report; its recorded ones were done before recording stopped
+         return report(scenarioName, options, threads, warmupNanos, elapsed, operations, weights, histograms, failures);
+      }
+   }
+
+   private void work(Scenario scenario, int worker, int[] weights, int totalWeight, LatencyHistogram[] histograms, long[] failures) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      try {
+         while (running) {
+            int op = pick(weights, random.nextInt(totalWeight));
+            long start = System.nanoTime();
+            boolean completed = scenario.run(op, worker);
+            long latency = System.nanoTime() - start;
+            if (recording) {
+               if (completed) {
+                  histograms[op].record(latency);
+               } else {
+                  failures[op]++;
+               }
+            }
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } catch (Exception e) {
+         failure.compareAndSet(null, new IllegalStateException("Operation failed in worker " + worker, e));
+         running = false;
+      }
+   }
+
+   /** Sleeps for nanos, or less if a worker failed meanwhile. */
+   private void sleepUnlessFailed(long nanos) throws InterruptedException {
+      long deadline = System.nanoTime() + nanos;
+      for (long left = nanos; left > 0 && failure.get() == null; left = deadline - System.nanoTime()) {
+         TimeUnit.NANOSECONDS.sleep(Math.min(left, TimeUnit.MILLISECONDS.toNanos(100)));
+      }
+   }
+
+   private static int pick(int[] weights, int ticket) {
+      for (int op = 0; op < weights.length; op++) {
+         ticket -= weights[op];
+         if (ticket < 0) {
+            return op;
+         }
+      }
+      return weights.length - 1;
+   }
+
+   // ------------------------------------------------------------------
+   // Scenarios
+
+   static Scenario createScenario(String name, Map<String, String> options, int threads) {
+      String impl = options.get("impl");
+      switch (name) {
+         case "counter":
+            return new CounterScenario(impl == null ? "atomic" : impl);
+         case "account":
+            return new AccountScenario(impl == null ? "synchronized" : impl, Integer.parseInt(options.getOrDefault("accounts", "1")));
+         case "readwrite":
+            return new ReadWriteScenario(ReadWriteLockExample.Mode.valueOf(impl == null ? "READ_WRITE_LOCK" : impl));
+         case "handoff":
+            if (threads < 2 || threads % 2 != 0) {
+               throw new IllegalArgumentException("handoff needs an even number of threads (producer/consumer pairs): " + threads);
+            }
+            return new HandoffScenario(impl == null ? "ringBuffer" : impl);
+         case "threadpool":
+            return new ThreadPoolScenario(ExecutorFactory.Kind.valueOf(impl == null ? "FIXED" : impl),
+                  Integer.parseInt(options.getOrDefault("poolThreads", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+         case "virtual":
+            return new ThreadStartScenario(impl == null ? "virtual" : impl);
+         default:
+            throw new IllegalArgumentException("Unknown scenario: " + name
+                  + " (counter, account, readwrite, handoff, threadpool, virtual)");
+      }
+   }
+
+   private static Map<String, Integer> ops(Object... namesAndWeights) {
+      Map<String, Integer> mix = new LinkedHashMap<>();
+      for (int i = 0; i < namesAndWeights.length; i += 2) {
+         mix.put((String) namesAndWeights[i], (Integer) namesAndWeights[i + 1]);
+      }
+      return mix;
+   }
+
+   /** SharedCounter (AtomicInteger, RaceCondition.java) vs StripedCounter. */
+   private static final class CounterScenario implements Scenario {
+      private final SharedCounter atomic;
+      private final StripedCounter striped;
+
+      CounterScenario(String impl) {
+         switch (impl) {
+            case "atomic":
+               atomic = new SharedCounter();
+               striped = null;
+               break;
+            case "striped":
+               atomic = null;
+               striped = new StripedCounter();
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown counter impl: " + impl + " (atomic, striped)");
+         }
+      }
+
+      @Override
+      public Map<String, Integer> defaultMix() {
+         return ops("increment", 90, "read", 10);
+      }
+
+      @Override
+      public boolean run(int op, int worker) {
+         if (op == 0) {
+            if (atomic != null) {
+               atomic.increment();
+            } else {
+               striped.increment();
+            }
+         } else {
+            long count = atomic != null ? atomic.getCount() : striped.getCount();
+            return count >= 0;
+         }
+         return true;
+      }
+   }
+
+   /** The Account implementations with no simulated processing time. */
+   private static final class AccountScenario implements Scenario {
+      private final Account[] accounts;
+      private final OffHeapBalanceTable offHeap;
+
+      AccountScenario(String impl, int count) {
+         if (count < 1) {
+            throw new IllegalArgumentException("--accounts must be positive: " + count);
+         }
+         this.accounts = new Account[count];
+         this.offHeap = impl.equals("offHeap") ? new OffHeapBalanceTable(count, Integer.MAX_VALUE) : null;
+         for (int i = 0; i < count; i++) {
+            accounts[i] = switch (impl) {
+               case "synchronized" -> new SbiAccount(Integer.MAX_VALUE, 0);
+               case "reentrantLock" -> new LockBasedSbiAccount(Integer.MAX_VALUE, 0);
+               case "nonPinning" -> new NonPinningSbiAccount(Integer.MAX_VALUE, 0);
+               case "groupCommit" -> new GroupCommitSbiAccount(Integer.MAX_VALUE, 0);
+               case "offHeap" -> offHeap.account(i);
+               default -> throw new IllegalArgumentException("Unknown account impl: " + impl
+                     + " (synchronized, reentrantLock, nonPinning, groupCommit, offHeap)");
+            };
+         }
+      }
+
+      @Override
+      public Map<String, Integer> defaultMix() {
+         return ops("withdraw", 90, "balance", 10);
+      }
+
+      @Override
+      public boolean run(int op, int worker) {
+         Account account = accounts[accounts.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(accounts.length)];
+         if (op == 0) {
+            account.withdrawAmount(1);  // A rejected withdrawal is still a completed operation
+         } else {
+            account.getBalance();
+         }
+         return true;
+      }
+
+      @Override
+      public void close() {
+         if (offHeap != null) {
+            offHeap.close();
+         }
+      }
+   }
+
+   /** ReadWriteLockExample in any of its modes. */
+   private static final class ReadWriteScenario implements Scenario {
+      private final ReadWriteLockExample example;
+
+      ReadWriteScenario(ReadWriteLockExample.Mode mode) {
+         this.example = new ReadWriteLockExample(mode);
+      }
+
+      @Override
+      public Map<String, Integer> defaultMix() {
+         return ops("read", 95, "write", 5);
+      }
+
+      @Override
+      public boolean run(int op, int worker) {
+         return (op == 0 ? example.readCount() : example.writeCount()) >= 0;
+      }
+   }
+
+   /**
+    * Even workers produce, odd workers consume; an operation is one item
+    * handed over. Waits give up after 100 ms so the run can stop.
+    */
+   private static final class HandoffScenario implements Scenario {
+      private static final long TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+      private final RingBuffer<Integer> ring;
+      private final BlockingQueue<Integer> queue;
+
+      HandoffScenario(String impl) {
+         switch (impl) {
+            case "ringBuffer":
+               ring = new RingBuffer<>(1024, RingBuffer.Mode.MPMC);
+               queue = null;
+               break;
+            case "blockingQueue":
+               ring = null;
+               queue = new ArrayBlockingQueue<>(1024);
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown handoff impl: " + impl + " (ringBuffer, blockingQueue)");
+         }
+      }
+
+      @Override
+      public Map<String, Integer> defaultMix() {
+         return ops("transfer", 100);
+      }
+
+      @Override
+      public boolean run(int op, int worker) throws InterruptedException {
+         boolean producer = worker % 2 == 0;
+         if (queue != null) {
+            return producer ? queue.offer(worker, TIMEOUT_NANOS, TimeUnit.NANOSECONDS)
+                  : queue.poll(TIMEOUT_NANOS, TimeUnit.NANOSECONDS) != null;
+         }
+         long deadline = System.nanoTime() + TIMEOUT_NANOS;
+         for (int idleCount = 0; producer ? !ring.offer(worker) : ring.poll() == null; idleCount++) {
+            if (System.nanoTime() > deadline) {
+               return false;
+            }
+            ring.waitStrategy().idle(idleCount);
+         }
+         return true;
+      }
+   }
+
+   /** Round trip of a tiny task through an ExecutorFactory pool: submit, then wait for it. */
+   private static final class ThreadPoolScenario implements Scenario {
+      private final MeteredExecutorService pool;
+
+      ThreadPoolScenario(ExecutorFactory.Kind kind, int poolThreads) {
+         this.pool = ExecutorFactory.create(kind, poolThreads);
+      }
+
+      @Override
+      public Map<String, Integer> defaultMix() {
+         return ops("task", 100);
+      }
+
+      @Override
+      public boolean run(int op, int worker) throws Exception {
+         Future<Integer> result = pool.submit(() -> ThreadLocalRandom.current().nextInt());
+         result.get();
+         return true;
+      }
+
+      @Override
+      public void close() throws InterruptedException {
+         pool.shutdown();
+         pool.awaitTermination(10, TimeUnit.SECONDS);
+      }
+   }
+
+   /** Start a thread running a tiny task and join it: virtual vs platform threads. */
+   private static final class ThreadStartScenario implements Scenario {
+      private final ThreadFactory factory;
+
+      ThreadStartScenario(String impl) {
+         switch (impl) {
+            case "virtual":
+               factory = Thread.ofVirtual().factory();  // A factory is thread-safe, a Thread.Builder is not
+               break;
+            case "platform":
+               factory = Thread.ofPlatform().factory();
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown thread impl: " + impl + " (virtual, platform)");
+         }
+      }
+
+      @Override
+      public Map<String, Integer> defaultMix() {
+         return ops("task", 100);
+      }
+
+      @Override
+      public boolean run(int op, int worker) throws InterruptedException {
+         Thread thread = factory.newThread(Thread::onSpinWait);
+         thread.start();
+         thread.join();
+         return true;
+      }
+   }
+
+   // ------------------------------------------------------------------
+   // Options and report
+
+   /** --name=value arguments. */
+   static Map<String, String> parse(String[] args) {
+      Map<String, String> options = new LinkedHashMap<>();
+      for (String arg : args) {
+         int equals = arg.indexOf('=');
+         if (!arg.startsWith("--") || equals < 0) {
+            throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+         }
+         options.put(arg.substring(2, equals), arg.substring(equals + 1));
+      }
+      return options;
+   }
+
+   /** "10s", "500ms", "2m" or a plain number of seconds. */
+   static long parseDuration(String text) {
+      if (text.endsWith("ms")) {
+         return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(text.substring(0, text.length() - 2)));
+      }
+      if (text.endsWith("s")) {
+         return TimeUnit.SECONDS.toNanos(Long.parseLong(text.substring(0, text.length() - 1)));
+      }
+      if (text.endsWith("m")) {
+         return TimeUnit.MINUTES.toNanos(Long.parseLong(text.substring(0, text.length() - 1)));
+      }
+      return TimeUnit.SECONDS.toNanos(Long.parseLong(text));
+   }
+
+   /** Weights in defaultMix() order; --mix=name:weight,... overrides (missing operations get 0). */
+   private static int[] mix(Map<String, Integer> defaults, String override) {
+      List<String> names = new ArrayList<>(defaults.keySet());
+      int[] weights = new int[names.size()];
+      if (override == null) {
+         for (int i = 0; i < names.size(); i++) {
+            weights[i] = defaults.get(names.get(i));
+         }
+         return weights;
+      }
+      int total = 0;
+      for (String part : override.split(",")) {
+         String[] nameAndWeight = part.split(":");
+         int index = names.indexOf(nameAndWeight[0].trim());
+         if (index < 0 || nameAndWeight.length != 2) {
+            throw new IllegalArgumentException("Bad --mix entry '" + part + "', operations are " + names);
+         }
+         weights[index] = Integer.parseInt(nameAndWeight[1].trim());
+         total += weights[index];
+      }
+      if (total <= 0) {
+         throw new IllegalArgumentException("--mix needs a positive total weight: " + override);
+      }
+      return weights;
+   }
+
+   private String report(String scenario, Map<String, String> options, int threads, long warmupNanos, long elapsed,
+         List<String> operations, int[] weights, LatencyHistogram[][] histograms, long[][] failures) {
+      LatencyHistogram all = new LatencyHistogram();
+      StringBuilder perOperation = new StringBuilder();
+      StringBuilder mix = new StringBuilder();
+      long allFailed = 0;
+      for (int op = 0; op < operations.size(); op++) {
+         LatencyHistogram merged = new LatencyHistogram();
+         long failed = 0;
+         for (int w = 0; w < threads; w++) {
+            histograms[w][op].addTo(merged);
+            histograms[w][op].addTo(all);
+            failed += failures[w][op];
+         }
+         allFailed += failed;
+         String name = quote(operations.get(op));
+         mix.append(op == 0 ? "" : ", ").append(name).append(": ").append(weights[op]);
+         perOperation.append(op == 0 ? "" : ",\n").append("    ").append(name).append(": ")
+               .append(summary(merged, failed, elapsed));
+      }
+      return "{\n"
+            + "  \"scenario\": " + quote(scenario) + ",\n"
+            + "  \"impl\": " + (options.containsKey("impl") ? quote(options.get("impl")) : "null") + ",\n"
+            + "  \"threads\": " + threads + ",\n"
+            + "  \"stuckWorkers\": " + stuck.size() + ",\n"
+            + "  \"warmupSeconds\": " + warmupNanos / 1e9 + ",\n"
+            + "  \"durationSeconds\": " + elapsed / 1e9 + ",\n"
+            + "  \"mix\": {" + mix + "},\n"
+            + "  \"jvm\": {\"vendor\": " + quote(System.getProperty("java.vm.vendor"))
+            + ", \"version\": " + quote(System.getProperty("java.vm.version"))
+            + ", \"os\": " + quote(System.getProperty("os.name") + " " + System.getProperty("os.arch"))
+            + ", \"availableProcessors\": " + Runtime.getRuntime().availableProcessors() + "},\n"
+            + "  \"total\": " + summary(all, allFailed, elapsed) + ",\n"
+            + "  \"operations\": {\n" + perOperation + "\n  }\n"
+            + "}";
+   }
+
+   private static String summary(LatencyHistogram histogram, long failed, long elapsed) {
+      long count = histogram.count();
+      return String.format(java.util.Locale.ROOT,
+            "{\"count\": %d, \"failed\": %d, \"throughputOpsPerSec\": %.1f, \"latencyNanos\": "
+                  + "{\"p50\": %d, \"p90\": %d, \"p99\": %d, \"p999\": %d, \"max\": %d}}",
+            count, failed, count * 1e9 / elapsed, histogram.percentile(50), histogram.percentile(90),
+            histogram.percentile(99), histogram.percentile(99.9), histogram.max());
+   }
+
+   private static String quote(String text) {
+      StringBuilder quoted = new StringBuilder("\"");
+      for (char c : text.toCharArray()) {
+         switch (c) {
+            case '"' -> quoted.append("\\\"");
+            case '\\' -> quoted.append("\\\\");
+            case '\n' -> quoted.append("\\n");
+            default -> {
+               if (c < 0x20) {
+                  quoted.append(String.format("\\u%04x", (int) c));
+               } else {
+                  quoted.append(c);
+               }
+            }
+         }
+      }
+      return quoted.append('"').toString();
+   }
+}
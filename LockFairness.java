@@ -1,5 +1,4 @@
 package MultithreadingInJava;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -33,6 +32,11 @@ import java.util.concurrent.locks.ReentrantLock;
  *    - Short lock holding times
  *    - Thread starvation isn't a concern
  * 
+ * 5. Middle Ground - AdaptiveFairnessLock:
+ *    - Barges like an unfair lock for throughput
+ *    - Switches to FIFO only while a waiter has queued longer than a threshold
+ *    - Compared with the fair and unfair locks in FairnessBenchmark
+ * 
  * 🚨 Common Interview Questions:
  * Q1: Why is unfair locking default?
  * A1: Better performance, reduced thread suspension/resumption
@@ -61,7 +65,11 @@ public class LockFairness {
     *    - Prevents thread starvation
     *    - Trade-off: Lower throughput
     */
-   Lock lock = new ReentrantLock(true);  // Fair lock example
+   /**
+    * 3. Instrumented: the fair lock is wrapped in an InstrumentedLock so we can
+    *    see how long threads queue for it and how long they hold it
+    */
+   InstrumentedLock lock = new InstrumentedLock(new ReentrantLock(true));  // Fair lock example
 
    /**
     * 🔒 Resource Access Pattern with Fair Lock
@@ -113,7 +121,7 @@ public class LockFairness {
     * - Observe predictable execution sequence
     * - Note: Exact ordering may vary slightly due to scheduling
     */
-   public static void main(String[] args) {
+   public static void main(String[] args) throws InterruptedException {
       LockFairness reentrantLockExample = new LockFairness();
       // Method reference for clean, functional style
       Runnable task = reentrantLockExample::accessResource;
@@ -125,5 +133,11 @@ public class LockFairness {
       t1.start();
       t2.start();
       t3.start();
+      t1.join();
+      t2.join();
+      t3.join();
+
+      // Wait and hold times of the fair lock, merged from all three threads
+      System.out.println(reentrantLockExample.lock.stats());
    }
 }
@@ -0,0 +1,167 @@
+package MultithreadingInJava;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Object pool with a per-thread stage (ThreadLocal) in front of a shared,
+ * bounded overflow stage, so hot paths can reuse objects instead of
+ * allocating a new one per operation.
+ *
+ * How acquire() finds an object:
+ * 1. Local stage  - a small stack owned by the calling thread (no atomics)
+ * 2. Shared stage - a lock-free MPMC RingBuffer every thread can use
+ * 3. Miss         - allocate a new one with the factory
+ *
+ * release() resets the object and pushes it back to the local stage; when that
+ * is full it overflows to the shared stage, and when that is full too the
+ * object is dropped for the GC. The shared stage is what makes producer /
+ * consumer handoffs work: the consumer releases what the producer acquired,
+ * so objects flow back to the producer through the shared stage.
+ *
+ * Modes:
+ * - PER_THREAD: local + shared stage for every thread
+ * - SHARED:     shared stage only
+ * - AUTO:       local stage for platform threads, shared stage only for
+ *               virtual threads. A virtual thread usually lives for one task,
+ *               so a per-thread cache would be created, filled once and
+ *               thrown away with the thread - more garbage, not less.
+ *
+ * Rules for callers:
+ * - Never use an object after release(), and never release it twice
+ * - The reset action must clear everything a later user could observe
+ *
+ * Interview Tip: pooling only pays off for objects that are expensive to
+ * create or big (buffers). Small short-lived objects are nearly free with a
+ * modern GC; measure with JMH -prof gc (gc.alloc.rate.norm) before pooling.
+ */
+class ObjectPool<T> {
+
+   public enum Mode {
+      PER_THREAD,
+      SHARED,
+      AUTO
+   }
+
+   /**
+    * Hit/miss counts since creation. localHits + sharedHits + misses = acquires,
+    * except that each thread publishes its local hits in batches of 64, so up
+    * to 63 per thread may not be visible yet.
+    */
+   record Stats(long localHits, long sharedHits, long misses, long dropped) {
+
+      double hitRate() {
+         long acquires = localHits + sharedHits + misses;
+         return acquires == 0 ? 0 : (double) (localHits + sharedHits) / acquires;
+      }
+
+      @Override
+      public String toString() {
+         return String.format("localHits=%d sharedHits=%d misses=%d dropped=%d hitRate=%.2f%%",
+               localHits, sharedHits, misses, dropped, hitRate() * 100);
+      }
+   }
+
+   // Local hits are counted in the thread's stage and published in batches, keeping atomics off the fast path
+   private static final int HIT_BATCH = 64;
+
+   private final Supplier<? extends T> factory;
+   private final Consumer<? super T> reset;
+   private final Mode mode;
+   private final int localCapacity;
+   private final RingBuffer<T> shared;
+   // Thread-held values must not reference the pool, or a live thread keeps the pool (and this key) reachable
+   private final ThreadLocal<LocalStage> local;
+
+   private final StripedCounter localHits = new StripedCounter(16);
+   private final StripedCounter sharedHits = new StripedCounter(16);
+   private final StripedCounter misses = new StripedCounter(16);
+   private final StripedCounter dropped = new StripedCounter(16);
+
+   ObjectPool(Supplier<? extends T> factory, Consumer<? super T> reset) {
+      this(factory, reset, Mode.AUTO, 32, 1024);
+   }
+
+   /**
+    * @param localCapacity  objects kept per thread (ignored in SHARED mode)
+    * @param sharedCapacity size of the shared stage, a power of two
+    */
+   ObjectPool(Supplier<? extends T> factory, Consumer<? super T> reset, Mode mode, int localCapacity, int sharedCapacity) {
+      if (localCapacity < 0) {
+         throw new IllegalArgumentException("Local capacity must not be negative: " + localCapacity);
+      }
+      this.factory = factory;
+      this.reset = reset;
+      this.mode = mode;
+      this.localCapacity = localCapacity;
+      this.local = ThreadLocal.withInitial(() -> new LocalStage(localCapacity));
+      this.shared = new RingBuffer<>(sharedCapacity, RingBuffer.Mode.MPMC);
+   }
+
+   T acquire() {
+      if (usesLocalStage()) {
+         LocalStage stage = local.get();
+         if (stage.size > 0) {
+            @SuppressWarnings("unchecked")
+            T item = (T) stage.items[--stage.size];
+            stage.items[stage.size] = null;
+            if (++stage.unpublishedHits == HIT_BATCH) {
+               localHits.add(HIT_BATCH);
+               stage.unpublishedHits = 0;
+            }
+            return item;
+         }
+      }
+      T item = shared.poll();
+      if (item != null) {
+         sharedHits.increment();
+         return item;
+      }
+      misses.increment();
+      return factory.get();
+   }
+
+   void release(T item) {
+      reset.accept(item);
+      if (usesLocalStage()) {
+         LocalStage stage = local.get();
+         if (stage.size < localCapacity) {
+            stage.items[stage.size++] = item;
+            return;
+         }
+      }
+      if (!shared.offer(item)) {
+         dropped.increment();
+      }
+   }
+
+   Stats stats() {
+      return new Stats(localHits.getCount(), sharedHits.getCount(), misses.getCount(), dropped.getCount());
+   }
+
+   Mode mode() {
+      return mode;
+   }
+
+   private boolean usesLocalStage() {
+      switch (mode) {
+         case PER_THREAD:
+            return localCapacity > 0;
+         case AUTO:
+            return localCapacity > 0 && !Thread.currentThread().isVirtual();
+         default:
+            return false;
+      }
+   }
+
+   /** LIFO stack owned by one thread: the most recently released object is the one still in cache. */
+   private static final class LocalStage {
+      final Object[] items;
+      int size;
+      int unpublishedHits;
+
+      LocalStage(int capacity) {
+         this.items = new Object[capacity];
+      }
+   }
+}
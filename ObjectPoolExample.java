@@ -0,0 +1,101 @@
+package MultithreadingInJava;
+
+import java.util.Arrays;
+
+/**
+ * 🎯 QUICK GUIDE: Object Pooling with ThreadLocal
+ *
+ * 1. The problem:
+ *    - A producer/consumer pipeline that allocates a new message (and its
+ *      buffer) per item creates garbage at the rate it moves data
+ *    - At millions of items per second that means frequent young GCs
+ *
+ * 2. The idea: ObjectPool
+ *    - Each thread keeps a few released objects in a ThreadLocal stack, so
+ *      acquire/release on the same thread touch no shared state at all
+ *    - Objects released on one thread (the consumer) and needed on another
+ *      (the producer) travel through a shared lock-free overflow stage
+ *    - In steady state every acquire is a hit and nothing is allocated
+ *
+ * 3. Expected behaviour of main():
+ *    - Part 1: 1M messages, each with a 256-byte buffer, handed over a
+ *      RingBuffer; only the first few hundred acquires miss (the pool warming
+ *      up, bounded by the ring size), every later one is a hit
+ *    - Part 2: GroupCommitSbiAccount recycles its withdrawal requests, so the
+ *      pool reports hits once the first requests have been returned
+ *
+ * Interview Tip: ThreadLocal pools and virtual threads do not mix - a pool
+ * per short-lived virtual thread is pure overhead. ObjectPool.Mode.AUTO skips
+ * the thread-local stage on virtual threads.
+ */
+public class ObjectPoolExample {
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
+   public static void main(String[] args) throws InterruptedException {
+      // Part 1: producer/consumer handoff with pooled messages
+      int messages = 1_000_000;
+      ObjectPool<PooledMessage> pool = new ObjectPool<>(PooledMessage::new, PooledMessage::clear);
+      RingBuffer<PooledMessage> channel = new RingBuffer<>(256, RingBuffer.Mode.SPSC);
+
+      Thread producer = new Thread(()->{
+         for (int i = 0; i < messages; i++) {
+            PooledMessage message = pool.acquire();
+            message.write(i);
+            channel.put(message);
+         }
+      }, "Producer");
+      long[] checksum = new long[1];
+      Thread consumer = new Thread(()->{
+         for (int i = 0; i < messages; i++) {
+            PooledMessage message = channel.take();
+            checksum[0] += message.sequence + message.buffer[message.length - 1];
+            pool.release(message);  // Back to the pool instead of to the GC
+         }
+      }, "Consumer");
+      producer.start();
+      consumer.start();
+      producer.join();
+      consumer.join();
+      LOG.log("Message checksum ", checksum[0]);
+      LOG.log("Message pool: ", pool.stats());
+
+      // Part 2: pooled withdrawal requests inside a group-commit account
+      GroupCommitSbiAccount account = new GroupCommitSbiAccount(10_000, 0);
+      Thread[] customers = new Thread[4];
+      for (int c = 0; c < customers.length; c++) {
+         customers[c] = new Thread(()->{
+            for (int i = 0; i < 250; i++) {
+               account.withdrawAmount(1);
+            }
+         }, "Customer " + c);
+         customers[c].start();
+      }
+      for (Thread customer : customers) {
+         customer.join();
+      }
+      LOG.log("Remaining balance is ", account.getBalance());
+      LOG.log("Withdrawal pool: ", account.withdrawalPoolStats());
+   }
+}
+
+/**
+ * A message with a reusable payload buffer: the kind of object worth pooling.
+ */
+class PooledMessage {
+   static final int BUFFER_SIZE = 256;
+
+   final byte[] buffer = new byte[BUFFER_SIZE];
+   long sequence;
+   int length;
+
+   void write(long sequence) {
+      this.sequence = sequence;
+      this.length = BUFFER_SIZE;
+      Arrays.fill(buffer, (byte) sequence);
+   }
+
+   void clear() {
+      sequence = 0;
+      length = 0;
+   }
+}
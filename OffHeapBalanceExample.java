@@ -0,0 +1,87 @@
+package MultithreadingInJava;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 🎯 QUICK GUIDE: Off-heap balances
+ *
+ * 1. The problem:
+ *    - One SbiAccount object per account: object header + fields + reference
+ *      for a 4-byte balance, and every object is work for the GC
+ *
+ * 2. The idea: OffHeapBalanceTable
+ *    - All balances in one MemorySegment, 8 bytes each, indexed by account id
+ *    - Lock-free withdraw (CAS "if balance >= amount") and deposit (getAndAdd)
+ *
+ * 3. Expected behaviour of main() (account count from args[0], default 10M):
+ *    - Heap used and full-GC time with the SbiAccount objects: hundreds of MB
+ *      and a GC that has to visit every account
+ *    - The same with the off-heap table: almost no heap, GC time back to an
+ *      empty-heap baseline
+ *    - 4 threads doing random transfers: total money unchanged, no balance
+ *      below zero
+ *
+ * Run with: java --enable-preview (the FFM API is a preview API in JDK 21)
+ */
+public class OffHeapBalanceExample {
+
+   public static void main(String[] args) throws InterruptedException {
+      int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+      long baseline = usedHeapAfterGc();
+      SbiAccount[] onHeap = new SbiAccount[accounts];
+      for (int i = 0; i < accounts; i++) {
+         onHeap[i] = new SbiAccount(1000, 0);
+      }
+      report("SbiAccount objects", accounts, usedHeapAfterGc() - baseline, fullGcMillis());
+      Reference.reachabilityFence(onHeap);  // Keep the accounts alive until they are measured
+      onHeap = null;
+
+      baseline = usedHeapAfterGc();
+      try (OffHeapBalanceTable table = new OffHeapBalanceTable(accounts, 1000)) {
+         report("Off-heap table    ", accounts, usedHeapAfterGc() - baseline, fullGcMillis());
+         System.out.println("Off-heap bytes: " + table.offHeapBytes());
+
+         long before = table.totalBalance();
+         Thread[] tellers = new Thread[4];
+         for (int t = 0; t < tellers.length; t++) {
+            tellers[t] = new Thread(()->{
+               ThreadLocalRandom random = ThreadLocalRandom.current();
+               for (int i = 0; i < 1_000_000; i++) {
+                  table.transfer(random.nextInt(accounts), random.nextInt(accounts), random.nextInt(1, 2000));
+               }
+            }, "Teller " + t);
+            tellers[t].start();
+         }
+         for (Thread teller : tellers) {
+            teller.join();
+         }
+         long negative = 0;
+         for (int id = 0; id < accounts; id++) {
+            if (table.balance(id) < 0) {
+               negative++;
+            }
+         }
+         System.out.println("Total before " + before + ", after " + table.totalBalance() + ", negative balances " + negative);
+      }
+   }
+
+   private static void report(String label, int accounts, long heapBytes, long gcMillis) {
+      heapBytes = Math.max(0, heapBytes);  // GC noise can make an almost empty delta negative
+      System.out.printf("%s: heap %,d bytes (%.1f per account), full GC %d ms%n",
+            label, heapBytes, (double) heapBytes / accounts, gcMillis);
+   }
+
+   private static long usedHeapAfterGc() {
+      System.gc();
+      return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+   }
+
+   private static long fullGcMillis() {
+      long start = System.nanoTime();
+      System.gc();
+      return (System.nanoTime() - start) / 1_000_000;
+   }
+}
@@ -0,0 +1,170 @@
+package MultithreadingInJava;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Balances of many accounts in one off-heap MemorySegment instead of one heap
+ * object per account.
+ *
+ * Why?
+ * - An SbiAccount costs ~24 bytes of object (header, balance, processing
+ *   time) plus a 4-byte reference, for 4 bytes of actual balance. 50M
+ *   accounts are ~1.4 GB of heap that every full GC has to walk.
+ * - Here an account is 8 bytes (a long balance) at offset id * 8 in native
+ *   memory: 50M accounts are 400 MB the GC never sees.
+ *
+ * How:
+ * 1. Dense ids: account id i lives at index i; no map, no per-account object
+ * 2. Lock-free updates through a VarHandle on the segment:
+ *    - deposit:  getAndAdd
+ *    - withdraw: CAS loop "if balance >= amount then balance - amount", so
+ *      a balance never goes negative and nothing is held while waiting
+ * 3. The memory belongs to a shared Arena; close() frees it at once (no
+ *    waiting for a GC), and any later access fails instead of reading freed
+ *    memory
+ *
+ * The Foreign Function & Memory API is a preview API in JDK 21, so classes
+ * using this table run with java --enable-preview.
+ *
+ * Interview Tip: off-heap is not free - there is no bounds-free access (every
+ * access is checked against the segment), memory has to be freed explicitly,
+ * and a heap dump no longer shows the data. Use it for large, long-lived,
+ * flat data like this, not for small object graphs.
+ */
+class OffHeapBalanceTable implements AutoCloseable {
+
+   // (MemorySegment, long index) -> long, with atomic access modes
+   private static final VarHandle BALANCE = ValueLayout.JAVA_LONG.arrayElementVarHandle();
+
+   private final Arena arena;
+   private final MemorySegment balances;
+   private final int size;
+
+   /**
+    * @param accounts       number of accounts; ids are 0 .. accounts-1
+    * @param initialBalance starting balance of every account
+    */
+   OffHeapBalanceTable(int accounts, long initialBalance) {
+      if (accounts < 1) {
+         throw new IllegalArgumentException("Need at least one account: " + accounts);
+      }
+      this.size = accounts;
+      this.arena = Arena.ofShared();
+      // Aligned to a cache line; the allocation is zeroed
+      this.balances = arena.allocate(ValueLayout.JAVA_LONG.byteSize() * accounts, 64);
+      if (initialBalance != 0) {
+         for (long id = 0; id < accounts; id++) {
+            balances.setAtIndex(ValueLayout.JAVA_LONG, id, initialBalance);
+         }
+      }
+   }
+
+   /** Takes amount from the account if the balance covers it. */
+   boolean withdraw(int id, long amount) {
+      checkAmount(amount);
+      long balance = (long) BALANCE.getVolatile(balances, (long) id);
+      while (balance >= amount) {
+         long witness = (long) BALANCE.compareAndExchange(balances, (long) id, balance, balance - amount);
+         if (witness == balance) {
+            return true;
+         }
+         balance = witness;  // Someone else changed it: re-check with the value we lost to
+      }
+      return false;
+   }
+
+   void deposit(int id, long amount) {
+      checkAmount(amount);
+      BALANCE.getAndAdd(balances, (long) id, amount);
+   }
+
+   /**
+    * Moves money between two accounts. Withdraw first, so the money is never
+    * created; a reader may briefly see it in neither account.
+    */
+   boolean transfer(int from, int to, long amount) {
+      if (!withdraw(from, amount)) {
+         return false;
+      }
+      deposit(to, amount);
+      return true;
+   }
+
+   /**
+    * Adds delta (which may be negative) without any check: for replaying
+    * changes that were already validated when they were first applied.
+    */
+   void apply(int id, long delta) {
+      BALANCE.getAndAdd(balances, (long) id, delta);
+   }
+
+   /**
+    * Copies the balances of ids [fromId, fromId + count) into target. Not
+    * atomic: the caller keeps writers away from that range (BalanceSnapshots).
+    */
+   void copyTo(int fromId, int count, MemorySegment target, long targetOffset) {
+      long bytes = ValueLayout.JAVA_LONG.byteSize();
+      MemorySegment.copy(balances, fromId * bytes, target, targetOffset, count * bytes);
+   }
+
+   /** Overwrites every balance from source; only before the table is shared. */
+   void copyFrom(MemorySegment source, long sourceOffset) {
+      MemorySegment.copy(source, sourceOffset, balances, 0, balances.byteSize());
+   }
+
+   long balance(int id) {
+      return (long) BALANCE.getVolatile(balances, (long) id);
+   }
+
+   /** Sum of all balances; not a snapshot while transfers are running. */
+   long totalBalance() {
+      long total = 0;
+      for (long id = 0; id < size; id++) {
+         total += (long) BALANCE.getVolatile(balances, id);
+      }
+      return total;
+   }
+
+   int size() {
+      return size;
+   }
+
+   long offHeapBytes() {
+      return balances.byteSize();
+   }
+
+   /**
+    * An Account view of one id, so the table can stand in for SbiAccount.
+    */
+   Account account(int id) {
+      if (id < 0 || id >= size) {
+         throw new IndexOutOfBoundsException("No such account: " + id);
+      }
+      return new Account() {
+         @Override
+         public boolean withdrawAmount(int amount) {
+            return withdraw(id, amount);
+         }
+
+         @Override
+         public int getBalance() {
+            return (int) Math.min(Integer.MAX_VALUE, balance(id));
+         }
+      };
+   }
+
+   /** Frees the native memory; the table must not be used afterwards. */
+   @Override
+   public void close() {
+      arena.close();
+   }
+
+   private static void checkAmount(long amount) {
+      if (amount < 0) {
+         throw new IllegalArgumentException("Amount must not be negative: " + amount);
+      }
+   }
+}
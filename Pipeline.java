@@ -0,0 +1,395 @@
+package MultithreadingInJava;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Multi-stage pipeline: source -> stage -> ... -> sink, each stage on its
+ * own threads, connected by bounded queues of batches.
+ *
+ * Builds on the producer/consumer handoff of ThreadCommunicationExample:
+ * - SharedResource hands over ONE int per wait/notify round trip; here every
+ *   queue slot holds a batch of items, so the handoff cost is paid once per
+ *   batch instead of once per item
+ * - Queues are RingBuffers of a fixed number of batches. When a stage falls
+ *   behind, its input queue fills up and the stage before it waits in put()
+ *   - backpressure propagates all the way to the source, memory stays bounded
+ *
+ * Usage:
+ *    Pipeline pipeline = Pipeline.from("read", lines)
+ *          .stage("parse", 2, Integer::parseInt)
+ *          .stage("square", 1, x -> x * x)
+ *          .sink("sum", 1, total::add);
+ *    pipeline.await();
+ *    pipeline.metrics().forEach(System.out::println);
+ *
+ * - A stage function returning null drops the item (a filter)
+ * - Batches are flushed at the end of every input batch, so an item never
+ *   waits for more input to arrive
+ * - The first exception in any stage cancels the whole pipeline; await()
+ *   rethrows it as an ExecutionException
+ *
+ * Finding the bottleneck (metrics()): the slowest stage has the highest
+ * utilization, a full input queue, and the stages before it spend their time
+ * blocked on put().
+ */
+class Pipeline {
+
+   /**
+    * Metrics of one stage (the source has no input queue).
+    *
+    * @param utilization   time spent in the stage function / (elapsed * threads)
+    * @param blockedShare  time spent waiting for room downstream / (elapsed * threads)
+    * @param p99WaitNanos  time a batch sat in the input queue (99th percentile)
+    * @param p99ServiceNanos time to process one batch (99th percentile)
+    */
+   record StageMetrics(String name, int threads, long items, long batches, double itemsPerSecond,
+                       int queueDepth, int queueCapacity, double utilization, double blockedShare,
+                       long p50WaitNanos, long p99WaitNanos, long p50ServiceNanos, long p99ServiceNanos) {
+   }
+
+   static final int DEFAULT_BATCH_SIZE = 64;
+   static final int DEFAULT_QUEUE_BATCHES = 16;
+
+   private static final Batch END = new Batch(0);  // End of stream, one per downstream thread
+
+   private final Source source;
+   private final List<Stage> stages;
+   private final int batchSize;
+   private final WaitStrategy waitStrategy;
+   private final AtomicReference<Throwable> failure = new AtomicReference<>();
+   private final CountDownLatch finished;
+   private final long startNanos;
+   private final AtomicLong endNanos = new AtomicLong();  // When the last thread finished
+
+   private Pipeline(Builder<?> builder) {
+      this.batchSize = builder.batchSize;
+      this.waitStrategy = builder.waitStrategy;
+      this.stages = new ArrayList<>();
+      Stage next = null;
+      for (int i = builder.specs.size() - 1; i >= 0; i--) {
+         StageSpec spec = builder.specs.get(i);
+         next = new Stage(spec, builder.queueBatches, next);
+         stages.add(0, next);
+      }
+      this.source = new Source(builder.sourceName, builder.source, stages.get(0));
+      int threads = 1;
+      for (Stage stage : stages) {
+         threads += stage.threads;
+      }
+      this.finished = new CountDownLatch(threads);
+      this.startNanos = System.nanoTime();
+      for (Stage stage : stages) {
+         for (int i = 0; i < stage.threads; i++) {
+            start(stage.name + "-" + i, stage::work);
+         }
+      }
+      start(source.name, source::work);
+   }
+
+   /** Starts building a pipeline that reads its items from source. */
+   static <T> Builder<T> from(String name, Iterator<? extends T> source) {
+      return new Builder<>(name, source);
+   }
+
+   /**
+    * Waits until the sink has consumed the last item.
+    *
+    * @throws ExecutionException if a stage failed (the pipeline was cancelled)
+    */
+   void await() throws InterruptedException, ExecutionException {
+      finished.await();
+      Throwable cause = failure.get();
+      if (cause != null) {
+         throw new ExecutionException(cause);
+      }
+   }
+
+   boolean isDone() {
+      return finished.getCount() == 0;
+   }
+
+   /** Stops every stage; await() then throws with a CancellationException as the cause. */
+   void cancel() {
+      failure.compareAndSet(null, new CancellationException("Pipeline cancelled"));
+   }
+
+   /** Source first, sink last; safe to call while the pipeline runs. */
+   List<StageMetrics> metrics() {
+      long elapsed = (isDone() ? endNanos.get() : System.nanoTime()) - startNanos;
+      List<StageMetrics> metrics = new ArrayList<>();
+      metrics.add(source.metrics(elapsed));
+      for (Stage stage : stages) {
+         metrics.add(stage.metrics(elapsed));
+      }
+      return metrics;
+   }
+
+   /** The stage (not the source) with the highest utilization so far. */
+   StageMetrics bottleneck() {
+      StageMetrics busiest = null;
+      for (StageMetrics stage : metrics().subList(1, stages.size() + 1)) {
+         if (busiest == null || stage.utilization() > busiest.utilization()) {
+            busiest = stage;
+         }
+      }
+      return busiest;
+   }
+
+   // ------------------------------------------------------------------
+
+   private void start(String name, Runnable work) {
+      Thread thread = new Thread(() -> {
+         try {
+            work.run();
+         } catch (Throwable e) {
+            failure.compareAndSet(null, e);  // Everyone else sees it and stops
+         } finally {
+            endNanos.accumulateAndGet(System.nanoTime(), Math::max);
+            finished.countDown();
+         }
+      }, name);
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   private void put(RingBuffer<Batch> queue, Batch batch) {
+      if (batch != END) {
+         batch.enqueuedNanos = System.nanoTime();
+      }
+      for (int idleCount = 0; !queue.offer(batch); idleCount++) {
+         checkNotFailed();
+         waitStrategy.idle(idleCount);  // Backpressure: downstream is behind
+      }
+   }
+
+   private Batch take(RingBuffer<Batch> queue) {
+      for (int idleCount = 0; ; idleCount++) {
+         Batch batch = queue.poll();
+         if (batch != null) {
+            return batch;
+         }
+         checkNotFailed();
+         waitStrategy.idle(idleCount);
+      }
+   }
+
+   private void checkNotFailed() {
+      if (failure.get() != null) {
+         throw new CancellationException("Pipeline cancelled");
+      }
+   }
+
+   private static double share(long nanos, long elapsed, int threads) {
+      return elapsed <= 0 ? 0 : (double) nanos / ((double) elapsed * threads);
+   }
+
+   /** Items handed from one stage to the next in one queue slot. */
+   private static final class Batch {
+      final Object[] items;
+      int size;
+      long enqueuedNanos;
+
+      Batch(int capacity) {
+         this.items = new Object[capacity];
+      }
+   }
+
+   /** Counters and histograms shared by the threads of one stage. */
+   private static class Counters {
+      final StripedCounter items = new StripedCounter();
+      final StripedCounter batches = new StripedCounter();
+      final StripedCounter busyNanos = new StripedCounter();
+      final StripedCounter blockedNanos = new StripedCounter();
+      final LatencyHistogram waitNanos = new LatencyHistogram();
+      final LatencyHistogram serviceNanos = new LatencyHistogram();
+
+      StageMetrics metrics(String name, int threads, RingBuffer<Batch> input, long elapsed) {
+         long count = items.getCount();
+         return new StageMetrics(name, threads, count, batches.getCount(),
+               elapsed <= 0 ? 0 : count * 1e9 / elapsed,
+               input == null ? 0 : input.size(), input == null ? 0 : input.capacity(),
+               share(busyNanos.getCount(), elapsed, threads), share(blockedNanos.getCount(), elapsed, threads),
+               waitNanos.percentile(50), waitNanos.percentile(99),
+               serviceNanos.percentile(50), serviceNanos.percentile(99));
+      }
+   }
+
+   private final class Source extends Counters {
+      final String name;
+      final Iterator<?> iterator;
+      final Stage first;
+
+      Source(String name, Iterator<?> iterator, Stage first) {
+         this.name = name;
+         this.iterator = iterator;
+         this.first = first;
+      }
+
+      void work() {
+         while (true) {
+            long start = System.nanoTime();
+            Batch batch = new Batch(batchSize);
+            while (batch.size < batchSize && iterator.hasNext()) {
+               batch.items[batch.size++] = iterator.next();
+            }
+            long produced = System.nanoTime();
+            busyNanos.add(produced - start);
+            serviceNanos.record(produced - start);
+            if (batch.size == 0) {
+               break;
+            }
+            checkNotFailed();
+            items.add(batch.size);
+            batches.increment();
+            put(first.input, batch);
+            blockedNanos.add(System.nanoTime() - produced);
+         }
+         for (int i = 0; i < first.threads; i++) {
+            put(first.input, END);
+         }
+      }
+
+      StageMetrics metrics(long elapsed) {
+         return metrics(name, 1, null, elapsed);
+      }
+   }
+
+   private final class Stage extends Counters {
+      final String name;
+      final int threads;
+      final Function<Object, Object> function;
+      final RingBuffer<Batch> input;
+      final Stage next;
+      final AtomicInteger running;
+
+      Stage(StageSpec spec, int queueBatches, Stage next) {
+         this.name = spec.name;
+         this.threads = spec.threads;
+         this.function = spec.function;
+         this.input = new RingBuffer<>(queueBatches, RingBuffer.Mode.MPMC, waitStrategy);
+         this.next = next;
+         this.running = new AtomicInteger(threads);
+      }
+
+      void work() {
+         Batch out = next == null ? null : new Batch(batchSize);
+         for (Batch in = take(input); in != END; in = take(input)) {
+            long start = System.nanoTime();
+            waitNanos.recordConcurrent(start - in.enqueuedNanos);
+            long blocked = 0;
+            for (int i = 0; i < in.size; i++) {
+               Object result = function.apply(in.items[i]);
+               if (result != null && out != null) {
+                  out.items[out.size++] = result;
+                  if (out.size == batchSize) {
+                     blocked += emit(out);
+                     out = new Batch(batchSize);
+                  }
+               }
+            }
+            if (out != null && out.size > 0) {
+               blocked += emit(out);
+               out = new Batch(batchSize);
+            }
+            long service = System.nanoTime() - start - blocked;
+            serviceNanos.recordConcurrent(service);
+            busyNanos.add(service);
+            blockedNanos.add(blocked);
+            items.add(in.size);
+            batches.increment();
+         }
+         if (running.decrementAndGet() == 0 && next != null) {
+            // The last thread of this stage passes the end on, once per downstream thread
+            for (int i = 0; i < next.threads; i++) {
+               put(next.input, END);
+            }
+         }
+      }
+
+      /** @return nanos spent waiting for room downstream */
+      private long emit(Batch batch) {
+         long start = System.nanoTime();
+         put(next.input, batch);
+         return System.nanoTime() - start;
+      }
+
+      StageMetrics metrics(long elapsed) {
+         return metrics(name, threads, input, elapsed);
+      }
+   }
+
+   private record StageSpec(String name, int threads, Function<Object, Object> function) {
+   }
+
+   /**
+    * Describes the pipeline stage by stage; sink() starts it.
+    *
+    * @param <T> type of the items leaving the last stage added so far
+    */
+   static final class Builder<T> {
+      private final String sourceName;
+      private final Iterator<?> source;
+      private final List<StageSpec> specs = new ArrayList<>();
+      private int batchSize = DEFAULT_BATCH_SIZE;
+      private int queueBatches = DEFAULT_QUEUE_BATCHES;
+      private WaitStrategy waitStrategy = WaitStrategy.parking(50_000);
+
+      private Builder(String sourceName, Iterator<?> source) {
+         this.sourceName = sourceName;
+         this.source = source;
+      }
+
+      /**
+       * Adds a stage run by the given number of threads. Returning null from
+       * function drops the item. With several threads, item order is not kept.
+       */
+      @SuppressWarnings("unchecked")
+      <R> Builder<R> stage(String name, int threads, Function<? super T, ? extends R> function) {
+         if (threads < 1) {
+            throw new IllegalArgumentException("A stage needs at least one thread: " + threads);
+         }
+         specs.add(new StageSpec(name, threads, (Function<Object, Object>) function));
+         return (Builder<R>) this;
+      }
+
+      /** Maximum items per batch (default 64). 1 means item-by-item handoff. */
+      Builder<T> batchSize(int batchSize) {
+         if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+         }
+         this.batchSize = batchSize;
+         return this;
+      }
+
+      /** Batches each queue holds before the stage feeding it has to wait; rounded up to a power of two. */
+      Builder<T> queueCapacity(int batches) {
+         this.queueBatches = Math.max(2, Integer.highestOneBit(Math.max(1, batches - 1)) << 1);
+         return this;
+      }
+
+      /** How threads wait on empty and full queues; must wake up by itself (default: parking, 50 us). */
+      Builder<T> waitStrategy(WaitStrategy waitStrategy) {
+         this.waitStrategy = waitStrategy;
+         return this;
+      }
+
+      /** Adds the last stage and starts every thread. */
+      Pipeline sink(String name, int threads, Consumer<? super T> sink) {
+         stage(name, threads, item -> {
+            sink.accept(item);
+            return null;
+         });
+         return new Pipeline(this);
+      }
+   }
+}
@@ -1,8 +1,19 @@
 package MultithreadingInJava;
 
+/**
+ * Part 1: the even and odd threads run with no coordination, so the numbers
+ * come out in a random order.
+ *
+ * Part 2: the same two threads take turns through a TurnSequencer
+ * (round-robin), so the output is 0 1 2 3 ... 20 - without synchronized or
+ * wait/notify.
+ *
+ * Part 3: a weighted order for three stages: "parse" gets two turns for every
+ * one turn of "validate" and "store".
+ */
 public class PrintEvenAndOddInRandomOrder {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         Thread t1=new Thread(()->{
             for(int i=0;i<=20;i+=2){
                 System.out.println(i+" ");
@@ -19,6 +30,45 @@ public class PrintEvenAndOddInRandomOrder {
         t2.setName("Odd");
          t1.start();
          t2.start();
+         t1.join();
+         t2.join();
+
+        // Part 2: strict alternation, even (party 0) always before odd (party 1)
+        System.out.println("In order:");
+        TurnSequencer evenOdd = TurnSequencer.roundRobin(2, WaitStrategy.spinThenPark(WaitStrategy.SPIN_TRIES));
+        Thread even=new Thread(()->{
+            for(int i=0;i<=20;i+=2){
+                evenOdd.awaitTurn(0);
+                System.out.println(i+" ");
+                evenOdd.endTurn();
+            }
+        }, "Even");
+        Thread odd=new Thread(()->{
+            for(int i=1;i<=20;i+=2){
+                evenOdd.awaitTurn(1);
+                System.out.println(i+" ");
+                evenOdd.endTurn();
+            }
+        }, "Odd");
+        even.start();
+        odd.start();
+        even.join();
+        odd.join();
+
+        // Part 3: weighted turns, parse:validate:store = 2:1:1
+        System.out.println("Weighted:");
+        TurnSequencer stages = new TurnSequencer(WaitStrategy.spinThenPark(WaitStrategy.SPIN_TRIES), 2, 1, 1);
+        String[] names = {"parse", "validate", "store"};
+        int[] turns = {4, 2, 2};
+        Thread[] workers = new Thread[names.length];
+        for (int s = 0; s < names.length; s++) {
+            final int stage = s;
+            workers[s] = new Thread(()->stages.runTurns(stage, turns[stage], ()->System.out.println(names[stage])), names[s]);
+            workers[s].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
     }
-    
-}
\ No newline at end of file
+
+}
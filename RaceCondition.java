@@ -42,6 +42,25 @@ Thread t1=new Thread(()->{
      
     System.out.println(count.getCount());
 
+    // Same work on the striped counter: increments land on per-core cells instead of one AtomicInteger
+    StripedCounter striped=new StripedCounter();
+    Thread t3=new Thread(()->{
+       for(int i=0;i<50000;i++){
+          striped.increment();
+       }
+    });
+    Thread t4=new Thread(()->{
+       for(int i=0;i<50000;i++){
+          striped.increment();
+       }
+    });
+    t3.start();
+    t4.start();
+    System.out.println("Approximate striped count while running: " + striped.getCount());
+    t3.join();
+    t4.join();
+    System.out.println("Exact striped count: " + striped.getExactCount());
+
     }
    
 
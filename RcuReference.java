@@ -0,0 +1,71 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-copy-update (RCU) holder for large, read-mostly, immutable state.
+ *
+ * Why not a ReadWriteLock? Every readLock()/unlock() writes the shared lock
+ * state, so millions of reads per second from many cores all bounce the same
+ * cache line, even though nobody is writing.
+ *
+ * How:
+ * 1. Read:  get() is one volatile read - no lock, no CAS, no shared write.
+ *    Readers never wait, not even while a writer is busy.
+ * 2. Copy:  a writer builds a NEW version from the current one (the current
+ *    one is never modified).
+ * 3. Update: the new version is published with one volatile write. Readers
+ *    that already hold the old version keep using it; new readers see the new
+ *    one. Writers are serialized so no update is lost.
+ * 4. Reclaim: the old version is freed by the GC once the last reader drops
+ *    it - in Java the GC is the grace period (no synchronize_rcu() or hazard
+ *    pointers needed).
+ *
+ * Rules:
+ * - T must be immutable (or never changed after publication)
+ * - Call get() once per operation and use that version throughout, so one
+ *   operation sees one consistent version
+ * - Writes copy the whole state: fine for a few writes a minute, wrong for a
+ *   write-heavy map (use ConcurrentHashMap there)
+ *
+ * Interview Tip: this is also what CopyOnWriteArrayList does; RCU just
+ * generalizes it to any immutable value.
+ */
+class RcuReference<T> {
+   private volatile T current;
+   private volatile long version;
+   private final ReentrantLock writeLock = new ReentrantLock();  // Writers only
+
+   RcuReference(T initial) {
+      this.current = initial;
+   }
+
+   /** The current version; lock-free. */
+   T get() {
+      return current;
+   }
+
+   /**
+    * Builds the next version from the current one and publishes it.
+    *
+    * @param updater must return a new object and leave its argument untouched
+    * @return the published version
+    */
+   T update(UnaryOperator<T> updater) {
+      writeLock.lock();
+      try {
+         T next = updater.apply(current);
+         current = next;  // Publish: everything the updater wrote happens-before any get() that sees next
+         version++;
+         return next;
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   /** Number of updates published so far. */
+   long version() {
+      return version;
+   }
+}
@@ -1,8 +1,13 @@
 package MultithreadingInJava;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * 🎯 QUICK INTERVIEW GUIDE: ReadWriteLock Pattern
@@ -42,8 +47,36 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * 
  * Q4: Performance implications?
  * A4: Better than simple locks for read-heavy scenarios
+ *
+ * Q5: Do readers still contend with each other?
+ * A5: Yes - acquiring a read lock writes to the shared lock state, so readers
+ *     bounce that cache line between cores. The OPTIMISTIC_READ mode below
+ *     (StampedLock) reads without writing anything shared and only falls back
+ *     to a real read lock when a write happened in between.
+ *
+ * Q6: And for large state read millions of times per second, written a few
+ *     times a minute?
+ * A6: RCU (RcuReference, mode RCU below): readers read one volatile reference
+ *     and never lock; a writer copies the state, changes the copy and
+ *     publishes it. main() finishes with a 100,000-route RoutingTable read by
+ *     4 threads while a writer publishes new versions.
  */
 public class ReadWriteLockExample {
+   // Readers and writers log through the async logger instead of serializing on System.out
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
+   /**
+    * Locking mode behind the same readCount()/writeCount() API.
+    * - READ_WRITE_LOCK: ReentrantReadWriteLock for reads and writes
+    * - OPTIMISTIC_READ: StampedLock optimistic reads, write lock for writes
+    * - RCU: the count is an immutable value in an RcuReference; reads are
+    *   one volatile read, writes publish count + 1
+    */
+   public enum Mode {
+      READ_WRITE_LOCK,
+      OPTIMISTIC_READ,
+      RCU
+   }
 
    /**
     * Shared resource that needs read-write protection
@@ -63,6 +96,25 @@ public class ReadWriteLockExample {
    private final Lock readLock = lock.readLock();    // Multiple threads can hold this
    private final Lock writeLock = lock.writeLock();  // Only one thread can hold this
 
+   /**
+    * StampedLock used in OPTIMISTIC_READ mode:
+    * - tryOptimisticRead() only reads the lock state (no shared write)
+    * - validate(stamp) tells whether a writer got in while we were reading
+    */
+   private final StampedLock stampedLock = new StampedLock();
+
+   // RCU mode: readers never lock, writers replace the value
+   private final RcuReference<Integer> rcuCount = new RcuReference<>(0);
+   private final Mode mode;
+
+   public ReadWriteLockExample() {
+      this(Mode.READ_WRITE_LOCK);
+   }
+
+   public ReadWriteLockExample(Mode mode) {
+      this.mode = mode;
+   }
+
    /**
     * Read Operation Pattern
     * - Multiple threads can read simultaneously
@@ -73,6 +125,12 @@ public class ReadWriteLockExample {
     * ensuring lock release even if exception occurs
     */
    public int readCount() {
+      if (mode == Mode.OPTIMISTIC_READ) {
+         return optimisticReadCount();
+      }
+      if (mode == Mode.RCU) {
+         return rcuCount.get();  // No lock: one volatile read
+      }
       readLock.lock();  // Multiple threads can acquire this lock
       try {
          return count;  // Safe to read: protected by readLock
@@ -91,6 +149,12 @@ public class ReadWriteLockExample {
     * to maintain data consistency
     */
    public int writeCount() {
+      if (mode == Mode.OPTIMISTIC_READ) {
+         return stampedWriteCount();
+      }
+      if (mode == Mode.RCU) {
+         return rcuCount.update(current -> current + 1);
+      }
       writeLock.lock();  // Exclusive lock: blocks all other operations
       try {
          count++;  // Safe to modify: we have exclusive access
@@ -100,6 +164,39 @@ public class ReadWriteLockExample {
       }
    }
 
+   /**
+    * Optimistic Read Pattern (StampedLock)
+    * 1. Take a stamp - no lock is acquired
+    * 2. Read the shared value
+    * 3. Validate the stamp; only if a write happened, re-read under a real read lock
+    *
+    * Interview Tip: the optimistic stamp is not a lock, so there is nothing to
+    * unlock unless we fell back to readLock()
+    */
+   private int optimisticReadCount() {
+      long stamp = stampedLock.tryOptimisticRead();
+      int current = count;
+      if (!stampedLock.validate(stamp)) {
+         stamp = stampedLock.readLock();  // A writer got in: fall back to a real read lock
+         try {
+            current = count;
+         } finally {
+            stampedLock.unlockRead(stamp);
+         }
+      }
+      return current;
+   }
+
+   private int stampedWriteCount() {
+      long stamp = stampedLock.writeLock();  // Exclusive: invalidates all optimistic stamps
+      try {
+         count++;
+         return count;
+      } finally {
+         stampedLock.unlockWrite(stamp);
+      }
+   }
+
    /**
     * Demonstration of ReadWriteLock Usage
     * 
@@ -115,19 +212,21 @@ public class ReadWriteLockExample {
     * - Watch for proper lock handling
     */
     public static void main(String[] args) throws InterruptedException {
-      ReadWriteLockExample readWriteLockExample = new ReadWriteLockExample();
+      // Pass OPTIMISTIC_READ as the first argument to try the StampedLock mode
+      Mode mode = args.length > 0 ? Mode.valueOf(args[0]) : Mode.READ_WRITE_LOCK;
+      ReadWriteLockExample readWriteLockExample = new ReadWriteLockExample(mode);
 
       // Reader task: Multiple threads can execute this simultaneously
       Runnable read = () -> {
          for(int i=0;i<10;i++){
-            System.out.println(Thread.currentThread().getName()+" is reading : " +readWriteLockExample.readCount());
+            LOG.log("is reading : ", readWriteLockExample.readCount());
          }
       };
 
       // Writer task: Only one thread can execute this at a time
       Runnable write = () -> {
          for(int i=0;i<10;i++){
-            System.out.println(Thread.currentThread().getName()+" is writing : " + readWriteLockExample.writeCount());
+            LOG.log("is writing : ", readWriteLockExample.writeCount());
          }
       };
 
@@ -150,6 +249,111 @@ public class ReadWriteLockExample {
       t3.join();
 
       // Check final result
-      System.out.println("Final count is :- " + readWriteLockExample.count);
+      LOG.log("Final count is :- ", readWriteLockExample.readCount());
+
+      routingTableDemo();
+   }
+
+   /**
+    * Large read-mostly state: 4 readers look up routes for one second while a
+    * writer publishes a new table version every 100 ms. Readers never block.
+    */
+   private static void routingTableDemo() throws InterruptedException {
+      Map<String, String> initial = new HashMap<>();
+      for (int i = 0; i < 100_000; i++) {
+         initial.put("route-" + i, "backend-" + (i % 16));
+      }
+      RcuReference<RoutingTable> table = new RcuReference<>(new RoutingTable(initial));
+      LongAdder lookups = new LongAdder();
+      long end = System.nanoTime() + 1_000_000_000L;
+
+      Runnable reader = () -> {
+         ThreadLocalRandom random = ThreadLocalRandom.current();
+         while (System.nanoTime() < end) {
+            RoutingTable current = table.get();  // One version for the whole lookup
+            if (current.route("route-" + random.nextInt(100_000)) != null) {
+               lookups.increment();
+            }
+         }
+      };
+      Thread[] readers = new Thread[4];
+      for (int i = 0; i < readers.length; i++) {
+         readers[i] = new Thread(reader, "Route-Reader-" + i);
+         readers[i].start();
+      }
+      for (int i = 0; System.nanoTime() < end; i++) {
+         int route = i;
+         table.update(current -> current.with("route-" + route, "backend-new"));
+         Thread.sleep(100);
+      }
+      for (Thread t : readers) {
+         t.join();
+      }
+      LOG.log("RCU routing table: lookups in 1s = ", lookups.sum());
+      LOG.log("RCU routing table: versions published = ", table.version());
+   }
+}
+
+/**
+ * Immutable routing table: route key -> backend. Never changed after
+ * construction, so it can be shared through an RcuReference; with() returns
+ * a modified copy.
+ */
+final class RoutingTable {
+   private final Map<String, String> routes;
+
+   RoutingTable(Map<String, String> routes) {
+      this(new HashMap<>(routes));
+   }
+
+   private RoutingTable(HashMap<String, String> owned) {
+      this.routes = owned;  // Nobody else has a reference to it
+   }
+
+   String route(String key) {
+      return routes.get(key);
+   }
+
+   /** A copy with one route added or replaced: O(size), which is the price of lock-free reads. */
+   RoutingTable with(String key, String backend) {
+      HashMap<String, String> next = new HashMap<>(routes);
+      next.put(key, backend);
+      return new RoutingTable(next);
+   }
+
+   int size() {
+      return routes.size();
+   }
+}
+
+/**
+ * The same routes in a mutable HashMap behind a ReentrantReadWriteLock: the
+ * baseline the RCU RoutingTable is compared against. Writes are
+ * cheap, but every lookup takes and releases the read lock.
+ */
+class LockedRoutingTable {
+   private final Map<String, String> routes;
+   private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+   LockedRoutingTable(Map<String, String> routes) {
+      this.routes = new HashMap<>(routes);
+   }
+
+   String route(String key) {
+      lock.readLock().lock();
+      try {
+         return routes.get(key);
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   void put(String key, String backend) {
+      lock.writeLock().lock();
+      try {
+         routes.put(key, backend);
+      } finally {
+         lock.writeLock().unlock();
+      }
    }
 }
\ No newline at end of file
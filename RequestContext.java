@@ -0,0 +1,149 @@
+package MultithreadingInJava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Per-request context (the current userId) that code deep in a call chain can
+ * read without passing it through every method.
+ *
+ * Two backends behind one API:
+ * 1. scoped()      - ScopedValue. The binding exists only while run()/call()
+ *                    is on the stack, so there is nothing to remove() and
+ *                    nothing to leak. Subtasks started by fork() see the
+ *                    binding automatically (StructuredTaskScope inherits it).
+ *                    Reads are cheap and nothing is stored per thread beyond
+ *                    one small snapshot object.
+ * 2. threadLocal() - the classic ThreadLocal (see ThreadLocalExample). Every
+ *                    thread that binds a value gets its own ThreadLocalMap,
+ *                    cleanup depends on remove() in a finally block, and
+ *                    fork() has to copy the value into each subtask by hand.
+ *
+ * QUICK GUIDE:
+ * - context.run(userId, () -> handle(request));   // bind for this call only
+ * - context.userId();                              // read it anywhere below
+ * - context.fork(List.of(task1, task2));           // subtasks see the same userId
+ *
+ * ScopedValue and StructuredTaskScope are preview APIs in JDK 21. They are used
+ * only in ScopedValueRequestContext.java, so only that class is a preview class:
+ * threadLocal() runs on a plain java, scoped() needs java --enable-preview
+ * (see ScopedValueExample).
+ *
+ * Interview Tip: ThreadLocal is mutable, unbounded in lifetime and copied for
+ * every virtual thread that touches it. ScopedValue is immutable, bounded by a
+ * block of code and shared with children, which is exactly what a request
+ * context needs.
+ */
+interface RequestContext {
+
+   /** The immutable value that is bound; a record so userId stays an unboxed long. */
+   record Request(long userId) {
+   }
+
+   /** Runs task with userId bound for its duration (nested calls rebind and restore). */
+   void run(long userId, Runnable task);
+
+   /** Like run, but returns the task's result. */
+   <T> T call(long userId, Callable<T> task) throws Exception;
+
+   /** @throws IllegalStateException if called outside run()/call() */
+   long userId();
+
+   boolean isBound();
+
+   /**
+    * Runs every task concurrently on its own virtual thread with the current
+    * userId visible, and returns the results in order. Fails with the first
+    * exception thrown by any task.
+    */
+   <T> List<T> fork(List<? extends Callable<T>> tasks) throws Exception;
+
+   static RequestContext scoped() {
+      return new ScopedValueRequestContext();
+   }
+
+   static RequestContext threadLocal() {
+      return new ThreadLocalRequestContext();
+   }
+}
+
+/**
+ * ThreadLocal backend. Every bind saves the previous value and restores it in
+ * finally, so a pooled or reused thread never keeps a stale userId. fork()
+ * re-binds the captured value inside each subtask.
+ */
+class ThreadLocalRequestContext implements RequestContext {
+
+   private final ThreadLocal<Request> current = new ThreadLocal<>();
+
+   @Override
+   public void run(long userId, Runnable task) {
+      Request previous = current.get();
+      current.set(new Request(userId));
+      try {
+         task.run();
+      } finally {
+         restore(previous);
+      }
+   }
+
+   @Override
+   public <T> T call(long userId, Callable<T> task) throws Exception {
+      Request previous = current.get();
+      current.set(new Request(userId));
+      try {
+         return task.call();
+      } finally {
+         restore(previous);
+      }
+   }
+
+   @Override
+   public long userId() {
+      Request request = current.get();
+      if (request == null) {
+         throw new IllegalStateException("No request context bound on " + Thread.currentThread());
+      }
+      return request.userId();
+   }
+
+   @Override
+   public boolean isBound() {
+      return current.get() != null;
+   }
+
+   @Override
+   public <T> List<T> fork(List<? extends Callable<T>> tasks) throws Exception {
+      Request request = current.get();
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+         List<Future<T>> futures = new ArrayList<>(tasks.size());
+         for (Callable<T> task : tasks) {
+            // The value has to be handed over explicitly: a new thread starts with an empty ThreadLocal
+            futures.add(executor.submit(() -> request == null ? task.call() : call(request.userId(), task)));
+         }
+         List<T> results = new ArrayList<>(futures.size());
+         for (Future<T> future : futures) {
+            try {
+               results.add(future.get());
+            } catch (ExecutionException e) {
+               futures.forEach(f -> f.cancel(true));
+               throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+         }
+         return results;
+      }
+   }
+
+   private void restore(Request previous) {
+      if (previous == null) {
+         current.remove();   // leave no map entry behind
+      } else {
+         current.set(previous);
+      }
+   }
+}
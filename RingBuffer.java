@@ -0,0 +1,224 @@
+package MultithreadingInJava;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+
+/**
+ * Bounded, lock-free ring buffer for handing items between threads.
+ *
+ * Why not SharedResource (ThreadCommunicationExample.java)?
+ * - SharedResource holds exactly one value and every item costs a
+ *   synchronized block plus a wait()/notify() round trip (two context switches).
+ * - Here the buffer is pre-allocated, producers and consumers never take a
+ *   lock, and a consumer can drain many items in one call.
+ *
+ * Design (Disruptor-style sequences, Vyukov's bounded queue algorithm):
+ * 1. Capacity is a power of two, so slot = sequence & mask (no division).
+ * 2. Every slot has its own sequence number telling whose turn it is:
+ *    - slot sequence == position      : free, producer at position may write
+ *    - slot sequence == position + 1  : published, consumer at position may read
+ *    The release/acquire on the slot sequence also publishes the item itself.
+ * 3. The producer (tail) and consumer (head) positions are long counters,
+ *    each on its own padded cache line.
+ * 4. Mode decides which side may have several threads:
+ *    - SPSC: no CAS on either side
+ *    - MPSC: producers claim slots with CAS, the consumer does not
+ *    - MPMC: both sides claim with CAS
+ *
+ * Non-blocking calls: offer(), poll(), drainTo().
+ * Blocking calls: put(), take() - they wait using the configured WaitStrategy.
+ */
+class RingBuffer<E> {
+
+   public enum Mode {
+      SPSC,
+      MPSC,
+      MPMC
+   }
+
+   // 16 longs = 128 bytes between the hot counters (same padding as StripedCounter)
+   private static final int PAD = 16;
+   private static final int HEAD = PAD;
+   private static final int TAIL = 2 * PAD;
+   private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+   private final Object[] buffer;
+   private final long[] sequences;
+   private final long[] positions = new long[3 * PAD];
+   private final int mask;
+   private final boolean multiProducer;
+   private final boolean multiConsumer;
+   private final WaitStrategy waitStrategy;
+
+   RingBuffer(int capacity, Mode mode) {
+      this(capacity, mode, WaitStrategy.yielding());
+   }
+
+   RingBuffer(int capacity, Mode mode, WaitStrategy waitStrategy) {
+      if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+         throw new IllegalArgumentException("Capacity must be a power of two >= 2: " + capacity);
+      }
+      if (waitStrategy.untimedParkFrom() != Integer.MAX_VALUE) {
+         // Nobody would wake a parked put()/take(): there is no Waiters list here
+         throw new IllegalArgumentException("RingBuffer needs a wait strategy that wakes up by itself");
+      }
+      this.buffer = new Object[capacity];
+      this.sequences = new long[capacity];
+      this.mask = capacity - 1;
+      this.multiProducer = mode != Mode.SPSC;
+      this.multiConsumer = mode == Mode.MPMC;
+      this.waitStrategy = waitStrategy;
+      for (int i = 0; i < capacity; i++) {
+         sequences[i] = i;
+      }
+   }
+
+   /**
+    * Adds an item if there is room.
+    *
+    * @return false if the buffer is full
+    */
+   public boolean offer(E item) {
+      if (item == null) {
+         throw new NullPointerException();
+      }
+      long position = (long) LONGS.getVolatile(positions, TAIL);
+      for (;;) {
+         int slot = (int) position & mask;
+         long difference = (long) LONGS.getAcquire(sequences, slot) - position;
+         if (difference == 0) {
+            if (!multiProducer) {
+               LONGS.setOpaque(positions, TAIL, position + 1);
+               break;
+            }
+            if (LONGS.compareAndSet(positions, TAIL, position, position + 1)) {
+               break;
+            }
+            position = (long) LONGS.getVolatile(positions, TAIL);
+         } else if (difference < 0) {
+            return false;  // The consumer has not freed this slot yet: full
+         } else {
+            position = (long) LONGS.getVolatile(positions, TAIL);  // Another producer took it
+         }
+      }
+      int slot = (int) position & mask;
+      buffer[slot] = item;
+      LONGS.setRelease(sequences, slot, position + 1);
+      return true;
+   }
+
+   /**
+    * Removes the next item if there is one.
+    *
+    * @return null if the buffer is empty
+    */
+   @SuppressWarnings("unchecked")
+   public E poll() {
+      long position = (long) LONGS.getVolatile(positions, HEAD);
+      for (;;) {
+         int slot = (int) position & mask;
+         long difference = (long) LONGS.getAcquire(sequences, slot) - (position + 1);
+         if (difference == 0) {
+            if (!multiConsumer) {
+               LONGS.setOpaque(positions, HEAD, position + 1);
+               break;
+            }
+            if (LONGS.compareAndSet(positions, HEAD, position, position + 1)) {
+               break;
+            }
+            position = (long) LONGS.getVolatile(positions, HEAD);
+         } else if (difference < 0) {
+            return null;  // Nothing published at this position yet: empty
+         } else {
+            position = (long) LONGS.getVolatile(positions, HEAD);  // Another consumer took it
+         }
+      }
+      int slot = (int) position & mask;
+      E item = (E) buffer[slot];
+      buffer[slot] = null;
+      LONGS.setRelease(sequences, slot, position + mask + 1);  // Free the slot for the next lap
+      return item;
+   }
+
+   /**
+    * Removes up to maxItems available items and hands them to the consumer.
+    * The head position is advanced once for the whole batch.
+    *
+    * @return the number of items drained (0 if the buffer was empty)
+    */
+   @SuppressWarnings("unchecked")
+   public int drainTo(Consumer<? super E> consumer, int maxItems) {
+      long start;
+      int count;
+      for (;;) {
+         start = (long) LONGS.getVolatile(positions, HEAD);
+         count = 0;
+         while (count < maxItems
+               && (long) LONGS.getAcquire(sequences, (int) (start + count) & mask) == start + count + 1) {
+            count++;
+         }
+         if (count == 0) {
+            return 0;
+         }
+         if (!multiConsumer) {
+            LONGS.setOpaque(positions, HEAD, start + count);
+            break;
+         }
+         if (LONGS.compareAndSet(positions, HEAD, start, start + count)) {
+            break;
+         }
+      }
+      for (int i = 0; i < count; i++) {
+         long position = start + i;
+         int slot = (int) position & mask;
+         E item = (E) buffer[slot];
+         buffer[slot] = null;
+         LONGS.setRelease(sequences, slot, position + mask + 1);
+         consumer.accept(item);
+      }
+      return count;
+   }
+
+   /**
+    * Adds an item, waiting with the wait strategy while the buffer is full.
+    */
+   public void put(E item) {
+      int idleCount = 0;
+      while (!offer(item)) {
+         waitStrategy.idle(idleCount++);
+      }
+   }
+
+   /**
+    * Removes the next item, waiting with the wait strategy while the buffer is empty.
+    */
+   public E take() {
+      int idleCount = 0;
+      E item;
+      while ((item = poll()) == null) {
+         waitStrategy.idle(idleCount++);
+      }
+      return item;
+   }
+
+   /**
+    * @return the approximate number of items in the buffer
+    */
+   public int size() {
+      long head = (long) LONGS.getVolatile(positions, HEAD);
+      long tail = (long) LONGS.getVolatile(positions, TAIL);
+      return (int) Math.max(0, Math.min(tail - head, mask + 1));
+   }
+
+   public int capacity() {
+      return mask + 1;
+   }
+
+   /**
+    * @return the strategy put()/take() use, for callers that build their own loops around drainTo()
+    */
+   public WaitStrategy waitStrategy() {
+      return waitStrategy;
+   }
+}
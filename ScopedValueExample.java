@@ -0,0 +1,44 @@
+package MultithreadingInJava;
+
+import java.util.List;
+
+/**
+ * 🎯 QUICK GUIDE: ScopedValue vs ThreadLocal for a request context
+ *
+ * 1. ThreadLocal (see ThreadLocalExample):
+ *    - set() and remove() by hand; forget remove() on a pooled thread and the
+ *      next request sees a stale userId
+ *    - A new thread starts empty, so subtasks need the value copied in
+ *
+ * 2. ScopedValue:
+ *    - Bound for one block of code with runWhere()/callWhere(), gone afterwards
+ *    - Subtasks forked in a StructuredTaskScope see the binding automatically
+ *
+ * 3. Expected behaviour of main():
+ *    - Both RequestContext backends print the same userId inside run(), the
+ *      same userId in both forked subtasks, and "bound after run: false"
+ *
+ * Run with: java --enable-preview (ScopedValue is a preview API in JDK 21)
+ */
+public class ScopedValueExample {
+
+   public static void main(String[] args) throws Exception {
+      long userId = 12345L;
+      for (RequestContext context : new RequestContext[] {RequestContext.scoped(), RequestContext.threadLocal()}) {
+         String backend = context.getClass().getSimpleName();
+         context.run(userId, () -> {
+            System.out.println(backend + " bound userId " + context.userId());
+            try {
+               List<String> parts = context.fork(List.of(
+                     () -> "profile for " + context.userId(),
+                     () -> "orders for " + context.userId()));
+               System.out.println(backend + " subtasks saw " + parts);
+            } catch (Exception e) {
+               throw new IllegalStateException(e);
+            }
+         });
+         // Outside run() nothing is bound any more - no remove() needed
+         System.out.println(backend + " bound after run: " + context.isBound());
+      }
+   }
+}
@@ -0,0 +1,58 @@
+package MultithreadingInJava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.StructuredTaskScope;
+
+/**
+ * ScopedValue backend. call() uses ScopedValue.where(...).call(...), fork()
+ * uses StructuredTaskScope so the binding flows into the subtasks.
+ *
+ * Kept in its own file: javac marks every class of a file that uses a preview
+ * API as a preview class, and the ThreadLocal backend must load without
+ * --enable-preview.
+ */
+class ScopedValueRequestContext implements RequestContext {
+
+   private final ScopedValue<Request> current = ScopedValue.newInstance();
+
+   @Override
+   public void run(long userId, Runnable task) {
+      ScopedValue.runWhere(current, new Request(userId), task);
+   }
+
+   @Override
+   public <T> T call(long userId, Callable<T> task) throws Exception {
+      return ScopedValue.callWhere(current, new Request(userId), task);
+   }
+
+   @Override
+   public long userId() {
+      if (!current.isBound()) {
+         throw new IllegalStateException("No request context bound on " + Thread.currentThread());
+      }
+      return current.get().userId();
+   }
+
+   @Override
+   public boolean isBound() {
+      return current.isBound();
+   }
+
+   @Override
+   public <T> List<T> fork(List<? extends Callable<T>> tasks) throws Exception {
+      try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+         List<StructuredTaskScope.Subtask<T>> subtasks = new ArrayList<>(tasks.size());
+         for (Callable<T> task : tasks) {
+            subtasks.add(scope.fork(task));
+         }
+         scope.join().throwIfFailed();
+         List<T> results = new ArrayList<>(subtasks.size());
+         for (StructuredTaskScope.Subtask<T> subtask : subtasks) {
+            results.add(subtask.get());
+         }
+         return results;
+      }
+   }
+}
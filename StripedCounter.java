@@ -0,0 +1,103 @@
+package MultithreadingInJava;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A contention-free counter in the style of {@link java.util.concurrent.atomic.LongAdder}.
+ *
+ * Why not AtomicInteger (see SharedCounter in RaceCondition.java)?
+ * - Every increment hits the same cache line, which bounces between cores
+ *   ("cache-line ping-pong") and stops scaling after a few threads.
+ *
+ * How it works:
+ * 1. Increments are spread over padded cells, one stripe per core, picked by
+ *    a hash of the current thread id. Each cell sits on its own 128-byte
+ *    region of a long[] so neighbouring cells never share a cache line.
+ * 2. {@link #getCount()} sums the cells without any coordination. It is cheap,
+ *    but increments that race with the read may or may not be included.
+ * 3. {@link #getExactCount()} freezes every cell, sums them and unfreezes them.
+ *    The result is the exact count at the moment the last cell was frozen
+ *    (a linearizable snapshot). Increments arriving meanwhile wait briefly:
+ *    add() only CASes a cell that is not frozen, so a frozen cell never changes.
+ * 4. Counts are long, so the counter does not wrap at Integer.MAX_VALUE.
+ *
+ * Cell encoding: the low bit of each cell is the "frozen" flag and the count
+ * is stored shifted left by one, so a cell holds up to 2^62 in either direction.
+ */
+class StripedCounter {
+   // 16 longs = 128 bytes: one cell per two cache lines (covers adjacent-line prefetch)
+   private static final int PAD = 16;
+   private static final long FROZEN = 1L;
+   private static final VarHandle CELL = MethodHandles.arrayElementVarHandle(long[].class);
+
+   private final int mask;
+   private final long[] cells;
+
+   // Serializes exact snapshots; increments never take it
+   private final ReentrantLock snapshotLock = new ReentrantLock();
+
+   StripedCounter() {
+      this(Runtime.getRuntime().availableProcessors());
+   }
+
+   StripedCounter(int stripes) {
+      int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+      this.mask = size - 1;
+      // One extra cell of padding in front so cell 0 does not share a line with the array header
+      this.cells = new long[(size + 1) * PAD];
+   }
+
+   public void increment() {
+      add(1L);
+   }
+
+   public void add(long x) {
+      int index = cellIndex();
+      long delta = x << 1;
+      for (;;) {
+         long current = (long) CELL.getVolatile(cells, index);
+         if ((current & FROZEN) != 0) {
+            Thread.onSpinWait();  // A snapshot is reading this cell: a frozen cell never changes
+         } else if (CELL.weakCompareAndSet(cells, index, current, current + delta)) {
+            return;
+         }
+      }
+   }
+
+   /**
+    * Approximate read: cheap, never blocks writers, may miss concurrent increments.
+    */
+   public long getCount() {
+      long sum = 0;
+      for (int i = 0; i <= mask; i++) {
+         sum += (long) CELL.getVolatile(cells, (i + 1) * PAD) >> 1;
+      }
+      return sum;
+   }
+
+   /**
+    * Exact read: a linearizable snapshot of the count.
+    */
+   public long getExactCount() {
+      snapshotLock.lock();
+      try {
+         long sum = 0;
+         for (int i = 0; i <= mask; i++) {
+            sum += (long) CELL.getAndBitwiseOr(cells, (i + 1) * PAD, FROZEN) >> 1;
+         }
+         for (int i = 0; i <= mask; i++) {
+            CELL.getAndBitwiseAnd(cells, (i + 1) * PAD, ~FROZEN);
+         }
+         return sum;
+      } finally {
+         snapshotLock.unlock();
+      }
+   }
+
+   private int cellIndex() {
+      long h = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+      return (((int) (h >>> 32) & mask) + 1) * PAD;
+   }
+}
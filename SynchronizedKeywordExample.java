@@ -41,9 +41,24 @@ public class SynchronizedKeywordExample {
  * This class demonstrates instance-level synchronization where the lock
  * is acquired on the instance of SbiAccount.
  */
-class SbiAccount{
+class SbiAccount implements Account {
+   // Logging goes through the async logger: no console I/O while the monitor is held
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
    // The account balance - this is the shared resource that needs protection
-   private int balance=1000;
+   private int balance;
+
+   // Simulated processing time of one withdrawal (2 seconds in the example)
+   private final long processingMillis;
+
+   SbiAccount() {
+      this(1000, 2000);
+   }
+
+   SbiAccount(int balance, long processingMillis) {
+      this.balance = balance;
+      this.processingMillis = processingMillis;
+   }
 
    /**
     * Thread-safe method to withdraw money from the account.
@@ -53,31 +68,40 @@ class SbiAccount{
     * - Race conditions on the balance field
     * - Inconsistent account state
     */
-   public synchronized void withdrawAmount(int amount){
+   @Override
+   public synchronized boolean withdrawAmount(int amount){
       // Log the withdrawal request
-      System.out.println("Thread " + Thread.currentThread().getName() + " request to Withdraw $ " + amount);
+      LOG.log("request to Withdraw $ ", amount);
 
       // Check if sufficient balance exists
       // This check is thread-safe because it's within the synchronized block
       if(balance<amount){
-         System.out.println("Insufficient balance....");
-         return;
+         LOG.log("Insufficient balance....");
+         return false;
       }
 
       try {
          // Simulate processing time for the withdrawal
          // Even during this sleep, other threads cannot enter this method
          // because it's synchronized
-         System.out.println("Thread :- " + Thread.currentThread().getName() +" Withdrawal in progress.....");
-         Thread.sleep(2000);
+         LOG.log("Withdrawal in progress.....");
+         if (processingMillis > 0) {
+            Thread.sleep(processingMillis);
+         }
       }
       catch (InterruptedException ignored) {
       }
 
       // Complete the withdrawal and update the balance
       // This operation is atomic because of synchronization
-      System.out.println("Completed withdrawal by thread " + Thread.currentThread().getName());
+      LOG.log("Completed withdrawal");
       balance-=amount;
-      System.out.println("Remaining balance is " + balance);
+      LOG.log("Remaining balance is ", balance);
+      return true;
+   }
+
+   @Override
+   public synchronized int getBalance() {
+      return balance;
    }
 }
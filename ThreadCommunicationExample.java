@@ -1,5 +1,14 @@
 package MultithreadingInJava;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
 /**
  * 🎯 QUICK INTERVIEW GUIDE: Thread Communication in Java
  * 
@@ -39,8 +48,18 @@ package MultithreadingInJava;
  * 2. Explain proper exception handling
  * 3. Discuss importance of synchronized
  * 4. Mention potential deadlock scenarios
+ * 5. One slot + wait/notify costs two context switches per item; for
+ *    high-throughput handoff see RingBuffer (pre-allocated, lock-free, batch drainTo)
+ * 6. More than two threads: Pipeline chains stages through bounded queues of
+ *    batches; a full queue makes the stage before it wait (backpressure).
+ *    main() ends with a 3-stage pipeline and its per-stage metrics.
+ * 7. Reactive consumers: HandoffPublisher offers the same one-item-per-consumer
+ *    handoff as a Flow.Publisher - consumers request(n) instead of parking a
+ *    thread each, and the producer's offer() never blocks.
  */
 public class ThreadCommunicationExample {
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
      /**
       * Demonstrates Producer-Consumer pattern with thread communication
       * 
@@ -50,7 +69,7 @@ public class ThreadCommunicationExample {
       * 3. Synchronized communication
       * 4. Wait/notify mechanism in action
       */
-     public static void main(String[] args) {
+     public static void main(String[] args) throws InterruptedException, ExecutionException {
       // Shared resource instance for thread communication
       SharedResource sharedResource = new SharedResource();
 
@@ -71,6 +90,86 @@ public class ThreadCommunicationExample {
       Thread t2= new Thread(consumer," Cosumer ");
       t1.start();
       t2.start();
+      t1.join();
+      t2.join();
+
+      pipelineDemo();
+      publisherDemo();
+   }
+
+   /**
+    * 3 subscribers, each requesting 5 items at a time, share 30 items; no
+    * thread is parked while a subscriber has no demand or nothing to read.
+    */
+   private static void publisherDemo() throws InterruptedException {
+      CountDownLatch completed = new CountDownLatch(3);
+      // At most 5 items per delivery run; a FIFO pool, so the subscribers take turns
+      ExecutorService deliveryPool = Executors.newFixedThreadPool(2);
+      try (HandoffPublisher publisher = new HandoffPublisher(16, deliveryPool, 5)) {
+         for (int s = 0; s < 3; s++) {
+            String name = "Subscriber-" + s;
+            publisher.subscribe(new Flow.Subscriber<>() {
+               private final AtomicInteger received = new AtomicInteger();
+               private Flow.Subscription subscription;
+
+               @Override
+               public void onSubscribe(Flow.Subscription subscription) {
+                  this.subscription = subscription;
+                  subscription.request(5);
+               }
+
+               @Override
+               public void onNext(Integer item) {
+                  if (received.incrementAndGet() % 5 == 0) {
+                     subscription.request(5);  // Ask for more only after using up the last request
+                  }
+               }
+
+               @Override
+               public void onError(Throwable throwable) {
+                  LOG.log(name + " failed: ", throwable);
+                  completed.countDown();
+               }
+
+               @Override
+               public void onComplete() {
+                  LOG.log(name + " received items: ", received.get());
+                  completed.countDown();
+               }
+            });
+         }
+         for (int i = 0; i < 30; i++) {
+            while (!publisher.offer(i)) {
+               Thread.onSpinWait();  // Buffer full: the subscribers are behind
+            }
+         }
+      }
+      completed.await();
+      deliveryPool.shutdown();
+   }
+
+   /**
+    * source -> square (2 threads) -> digits (1 thread, deliberately slow) -> sum.
+    * The metrics show "digits" as the bottleneck: highest utilization, full
+    * input queue, and "square" blocked waiting for room.
+    */
+   private static void pipelineDemo() throws InterruptedException, ExecutionException {
+      LongAdder sum = new LongAdder();
+      Pipeline pipeline = Pipeline.from("source", IntStream.range(0, 1_000_000).iterator())
+            .stage("square", 2, i -> (long) i * i)
+            .stage("digits", 1, square -> {
+               String text = Long.toString(square);   // The slow stage
+               return text.chars().filter(c -> c == '7').count() > 1 ? square : null;  // Keep squares with 2+ sevens
+            })
+            .sink("sum", 1, sum::add);
+      pipeline.await();
+      LOG.log("Sum of squares with at least two 7s: ", sum.sum());
+      for (Pipeline.StageMetrics stage : pipeline.metrics()) {
+         LOG.log(String.format("%-7s threads=%d items=%,d (%,.0f/s) queue=%d/%d busy=%.0f%% blocked=%.0f%% p99 wait=%,dns p99 batch=%,dns",
+               stage.name(), stage.threads(), stage.items(), stage.itemsPerSecond(), stage.queueDepth(), stage.queueCapacity(),
+               stage.utilization() * 100, stage.blockedShare() * 100, stage.p99WaitNanos(), stage.p99ServiceNanos()));
+      }
+      LOG.log("Bottleneck: ", pipeline.bottleneck().name());
    }
 }
 
@@ -90,6 +189,9 @@ public class ThreadCommunicationExample {
  * - Wait/notify pattern
  */
 class SharedResource {
+   // Logging goes through the async logger: no console I/O while the monitor is held
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
    // Shared data between producer and consumer
    private int data;
 
@@ -123,7 +225,7 @@ class SharedResource {
       // Critical section: Produce data
       data = value;
       hasData = true;  // Mark data as available
-      System.out.println(Thread.currentThread().getName() + " Produced " + value);
+      LOG.log("Produced ", value);
       
       // Wake up waiting consumer
       notify();  // Could use notifyAll() if multiple consumers
@@ -154,7 +256,7 @@ class SharedResource {
       }
       // Critical section: Consume data
       hasData = false;  // Mark data as consumed
-      System.out.println(Thread.currentThread().getName() + " Consumed " + data);
+      LOG.log("Consumed ", data);
       
       // Wake up waiting producer
       notify();  // Could use notifyAll() if multiple producers
@@ -1,12 +1,19 @@
 package MultithreadingInJava;
 
+import java.util.List;
+
 /**
  * This class demonstrates the usage of ThreadLocal in Java.
  * ThreadLocal provides thread-local variables, which means each thread that accesses
  * a ThreadLocal variable has its own, independently initialized copy of the variable.
+ *
+ * The second half shows RequestContext.threadLocal(): the same pattern behind
+ * an API that binds the userId for one call and cleans up by itself.
+ * For the ScopedValue backend side by side see ScopedValueExample
+ * (needs java --enable-preview; this example runs on a plain java).
  */
 public class ThreadLocalExample {
-    public static void main(String[] args){
+    public static void main(String[] args) throws Exception {
         // Create a ThreadLocal instance that will store Long values
         // Each thread will get its own copy of this variable
         ThreadLocal<Long> threadLocal=new ThreadLocal<>();
@@ -49,8 +56,28 @@ public class ThreadLocalExample {
       // Each thread will maintain its own copy of the userId in threadLocal
       t1.start();
       t2.start();
+      t1.join();
+      t2.join();
 
       // Note: Even though both threads use the same threadLocal variable,
       // they each get their own independent copy of the value
+
+      // Request context: the same idea without set()/remove()
+      // - run() binds the userId only while the task runs
+      // - fork() hands it to subtasks on new virtual threads
+      RequestContext context = RequestContext.threadLocal();
+      context.run(userId1, ()->{
+         System.out.println("ThreadLocal context bound userId " + context.userId());
+         try {
+            List<String> parts = context.fork(List.of(
+                  ()->"profile for " + context.userId(),
+                  ()->"orders for " + context.userId()));
+            System.out.println("ThreadLocal context subtasks saw " + parts);
+         } catch (Exception e) {
+            throw new IllegalStateException(e);
+         }
+      });
+      // Outside run() nothing is bound any more - no remove() needed
+      System.out.println("ThreadLocal context bound after run: " + context.isBound());
     }
 }
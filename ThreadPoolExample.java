@@ -2,6 +2,9 @@ package MultithreadingInJava;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class demonstrates different types of Thread Pools in Java using ExecutorService.
@@ -19,6 +22,10 @@ import java.util.concurrent.Executors;
  * 2. Fixed Thread Pool - Uses a fixed number of threads
  * 3. Cached Thread Pool - Creates new threads as needed, reuses idle ones
  * 4. Scheduled Thread Pool - Can schedule tasks with delays or periodic execution
+ * 5. ExecutorFactory pools - all of the above plus work-stealing and
+ *    virtual-thread-per-task, each with per-pool metrics
+ * 6. TimingWheelScheduler - a scheduled pool with O(1) schedule/cancel for
+ *    millions of pending timers
  */
 public class ThreadPoolExample {
     public static void main(String[] args) throws InterruptedException {
@@ -68,19 +75,61 @@ public class ThreadPoolExample {
    // - Designed for scheduling tasks to run after a delay or periodically
    // - Creates a thread pool with specified number of threads (3 here)
    // - Useful for tasks that need to run at specific times or intervals
-   ExecutorService executorService3=Executors.newScheduledThreadPool(3);
+   ScheduledExecutorService executorService3=Executors.newScheduledThreadPool(3);
    for (int i=1;i<=5;i++){
       final int task=i;
-      // In this example, we're just executing tasks immediately
-      // Can also use schedule(), scheduleAtFixedRate(), or scheduleWithFixedDelay()
-      executorService3.execute(()->{
+      // Each task runs task*100 ms from now instead of immediately
+      // Also available: scheduleAtFixedRate() and scheduleWithFixedDelay()
+      executorService3.schedule(()->{
          System.out.println("Scheduled thread Pool task " + task + " executed by thread " + Thread.currentThread().getName());
-      });
+      }, task * 100L, TimeUnit.MILLISECONDS);
    }
    // Initiate an orderly shutdown of the executor
    // - No new tasks will be accepted
-   // - Previously submitted tasks will be executed
+   // - Previously submitted tasks (including delayed ones) will be executed
    executorService3.shutdown();
+   executorService3.awaitTermination(10, TimeUnit.SECONDS);
+
+   // 5. Metered pools from ExecutorFactory
+   // - Same stock pools plus WORK_STEALING (ForkJoinPool) and VIRTUAL_PER_TASK
+   // - Every pool reports queue depth, wait/run time, steals and rejections
+   // - Compare them on the same workload to pick a pool from measured numbers
+   for (ExecutorFactory.Kind kind : ExecutorFactory.Kind.values()) {
+      MeteredExecutorService pool = ExecutorFactory.create(kind, 3);
+      for (int i = 1; i <= 5; i++) {
+         final int task = i;
+         pool.execute(()->{
+            System.out.println(kind + " task " + task + " executed by thread " + Thread.currentThread());
+         });
+      }
+      if (pool instanceof MeteredScheduledExecutorService scheduled) {
+         // SCHEDULED keeps the ScheduledExecutorService API; its wait time is how late a run started
+         scheduled.schedule(()->System.out.println("SCHEDULED delayed task executed by thread " + Thread.currentThread()),
+               50, TimeUnit.MILLISECONDS);
+      }
+      pool.shutdown();
+      pool.awaitTermination(10, TimeUnit.SECONDS);
+      System.out.println(pool.stats());
+   }
+
+   // 6. Timing-wheel scheduler
+   // - Same ScheduledExecutorService API as newScheduledThreadPool
+   // - O(1) schedule and cancel instead of O(log n): pays off with millions
+   //   of pending timeouts that are mostly cancelled before they fire
+   // - Precision is one tick (10 ms here)
+   TimingWheelScheduler wheel = new TimingWheelScheduler(10, TimeUnit.MILLISECONDS, 3);
+   for (int i = 1; i <= 5; i++) {
+      final int task = i;
+      wheel.schedule(()->{
+         System.out.println("Timing wheel task " + task + " executed by thread " + Thread.currentThread().getName());
+      }, task * 100L, TimeUnit.MILLISECONDS);
+   }
+   ScheduledFuture<?> timeout = wheel.schedule(()->System.out.println("Timeout fired (should not happen)"), 1, TimeUnit.HOURS);
+   timeout.cancel(false);
+   Thread.sleep(700);
+   System.out.println("Timing wheel pending timers: " + wheel.pendingTimers());
+   wheel.shutdown();
+   wheel.awaitTermination(10, TimeUnit.SECONDS);
    }
     
    // Note: Each type of thread pool has its own use case:
@@ -88,4 +137,7 @@ public class ThreadPoolExample {
    // - FixedThreadPool: Limited resources, known workload
    // - CachedThreadPool: Many short-lived tasks, dynamic workload
    // - ScheduledThreadPool: Delayed or periodic task execution
+   // - WorkStealing (ForkJoinPool): Many small CPU-bound tasks
+   // - VirtualThreadPerTask: Blocking I/O-bound tasks
+   // - TimingWheelScheduler: Huge numbers of coarse-grained timeouts
 }
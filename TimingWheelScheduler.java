@@ -0,0 +1,450 @@
+package MultithreadingInJava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A ScheduledExecutorService backed by a hierarchical hashed timing wheel.
+ *
+ * ScheduledThreadPoolExecutor keeps its timers in a binary heap, so every
+ * schedule and cancel costs O(log n) under one lock. With millions of pending
+ * timeouts (most of which get cancelled before they fire) that lock and the
+ * heap sifts become the bottleneck. A timing wheel makes both O(1).
+ *
+ * QUICK GUIDE:
+ * 1. Time is cut into ticks (tickDuration, e.g. 1 ms). A timer fires on the
+ *    first tick at or after its deadline - never early, at most one tick late.
+ * 2. Level 0 has 512 slots of one tick each. Level 1 has 512 slots of 512
+ *    ticks each, and so on for 4 levels (2^36 ticks: ~2 years at 1 ms).
+ * 3. Schedule = pick the level from the distance to the deadline, hash the
+ *    deadline into a slot, push onto that slot's linked list. O(1).
+ * 4. Cancel = unlink the node from its slot's doubly linked list. O(1).
+ * 5. Every 512 ticks the next level-1 slot is "cascaded": its timers are now
+ *    less than 512 ticks away and are re-inserted into level 0 (same for the
+ *    higher levels). Each timer is moved at most once per level.
+ *
+ * Threading:
+ * - Only the ticker thread touches the wheel, so the slot lists need no locks.
+ * - schedule() and cancel() from other threads go through lock-free inboxes
+ *   that the ticker drains once per tick.
+ * - Due timers run on a separate worker pool, so a slow task never delays
+ *   the wheel.
+ *
+ * Trade-offs vs ScheduledThreadPoolExecutor:
+ * - Precision is one tick; use the JDK scheduler for sub-millisecond timers.
+ * - The ticker wakes once per tick even when no timer is pending.
+ * - shutdown() drops timers that have not fired yet (like setting
+ *   setExecuteExistingDelayedTasksAfterShutdownPolicy(false)); tasks that
+ *   already fired still finish.
+ */
+class TimingWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+
+   private static final int WHEEL_BITS = 9;
+   private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+   private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+   private static final int LEVELS = 4;
+   private static final long MAX_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+   private final long tickNanos;
+   private final long startNanos;
+   private final TimerTask<?>[][] slots = new TimerTask<?>[LEVELS][WHEEL_SIZE];
+   private final ConcurrentLinkedQueue<TimerTask<?>> scheduled = new ConcurrentLinkedQueue<>();
+   private final ConcurrentLinkedQueue<TimerTask<?>> cancelled = new ConcurrentLinkedQueue<>();
+   private final StripedCounter pending = new StripedCounter(16);
+   private final ExecutorService workers;
+   private final Thread ticker;
+
+   private long currentTick;            // ticker thread only
+   private volatile long drainPasses;   // written by the ticker only: completed drainInboxes() calls
+   private volatile boolean shutdown;
+   private volatile List<Runnable> unfired = List.of();
+
+   /** 1 ms ticks, one worker per core. */
+   TimingWheelScheduler() {
+      this(1, TimeUnit.MILLISECONDS, Runtime.getRuntime().availableProcessors());
+   }
+
+   TimingWheelScheduler(long tickDuration, TimeUnit unit, int workerThreads) {
+      this(tickDuration, unit, Executors.newFixedThreadPool(workerThreads));
+   }
+
+   /**
+    * @param workers runs the due timers; shut down together with this scheduler
+    */
+   TimingWheelScheduler(long tickDuration, TimeUnit unit, ExecutorService workers) {
+      if (tickDuration <= 0) {
+         throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+      }
+      this.tickNanos = unit.toNanos(tickDuration);
+      this.workers = workers;
+      this.startNanos = System.nanoTime();
+      this.ticker = new Thread(this::runTicker, "timing-wheel-ticker");
+      this.ticker.start();
+   }
+
+   /** Timers scheduled but not yet fired or cancelled. */
+   long pendingTimers() {
+      return pending.getCount();
+   }
+
+   long tickNanos() {
+      return tickNanos;
+   }
+
+   /**
+    * Wakes the ticker and waits until every schedule() and cancel() made
+    * before this call has reached the wheel (inserted into or unlinked from its
+    * slot). For benchmarks, so the ticker's share of the work is measured too.
+    */
+   void awaitDrained() {
+      WaitStrategy idle = WaitStrategy.yielding();
+      for (int idleCount = 0; !scheduled.isEmpty() || !cancelled.isEmpty(); idleCount++) {
+         LockSupport.unpark(ticker);
+         idle.idle(idleCount);
+      }
+      // The last items may have been polled by a pass that is still inserting them
+      long passes = drainPasses;
+      for (int idleCount = 0; drainPasses == passes && ticker.isAlive(); idleCount++) {
+         LockSupport.unpark(ticker);
+         idle.idle(idleCount);
+      }
+   }
+
+   // ------------------------------------------------------------------
+   // ScheduledExecutorService
+   // ------------------------------------------------------------------
+
+   @Override
+   public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+      return enqueue(new TimerTask<Void>(Executors.callable(command, null), deadline(delay, unit), 0));
+   }
+
+   @Override
+   public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+      return enqueue(new TimerTask<>(callable, deadline(delay, unit), 0));
+   }
+
+   @Override
+   public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+      if (period <= 0) {
+         throw new IllegalArgumentException("Period must be positive: " + period);
+      }
+      return enqueue(new TimerTask<Void>(Executors.callable(command, null), deadline(initialDelay, unit), unit.toNanos(period)));
+   }
+
+   @Override
+   public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+      if (delay <= 0) {
+         throw new IllegalArgumentException("Delay must be positive: " + delay);
+      }
+      return enqueue(new TimerTask<Void>(Executors.callable(command, null), deadline(initialDelay, unit), -unit.toNanos(delay)));
+   }
+
+   /** Runs the command right away on the worker pool; no timer involved. */
+   @Override
+   public void execute(Runnable command) {
+      if (shutdown) {
+         throw new RejectedExecutionException("Scheduler has been shut down");
+      }
+      workers.execute(command);
+   }
+
+   @Override
+   public void shutdown() {
+      shutdown = true;
+      LockSupport.unpark(ticker);
+   }
+
+   /** Returns the timers that never fired; tasks already running are interrupted. */
+   @Override
+   public List<Runnable> shutdownNow() {
+      shutdown();
+      boolean interrupted = false;
+      while (true) {
+         try {
+            ticker.join();
+            break;
+         } catch (InterruptedException e) {
+            interrupted = true;
+         }
+      }
+      workers.shutdownNow();
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+      return unfired;
+   }
+
+   @Override
+   public boolean isShutdown() {
+      return shutdown;
+   }
+
+   @Override
+   public boolean isTerminated() {
+      return !ticker.isAlive() && workers.isTerminated();
+   }
+
+   @Override
+   public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      TimeUnit.NANOSECONDS.timedJoin(ticker, Math.max(0, deadline - System.nanoTime()));
+      return !ticker.isAlive() && workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+   }
+
+   // ------------------------------------------------------------------
+   // Caller side
+   // ------------------------------------------------------------------
+
+   private long deadline(long delay, TimeUnit unit) {
+      return System.nanoTime() + Math.max(0, unit.toNanos(delay));
+   }
+
+   private <V> TimerTask<V> enqueue(TimerTask<V> task) {
+      if (shutdown) {
+         throw new RejectedExecutionException("Scheduler has been shut down");
+      }
+      pending.increment();
+      scheduled.add(task);
+      if (shutdown && withdraw(task)) {
+         throw new RejectedExecutionException("Scheduler has been shut down");
+      }
+      return task;
+   }
+
+   private void reschedule(TimerTask<?> task) {
+      if (shutdown) {
+         task.cancel(false);
+         return;
+      }
+      pending.increment();
+      scheduled.add(task);
+      if (shutdown && withdraw(task)) {
+         task.cancel(false);
+      }
+   }
+
+   /**
+    * shutdown() raced with an add: the ticker may already have done its final
+    * drain. Takes the task back unless the ticker got it (then clearWheel()
+    * cancels it).
+    *
+    * @return true if the task was taken back and will never run
+    */
+   private boolean withdraw(TimerTask<?> task) {
+      if (!scheduled.remove(task)) {
+         return false;
+      }
+      pending.add(-1);
+      return true;
+   }
+
+   // ------------------------------------------------------------------
+   // Ticker thread: the only thread that reads or writes the wheel
+   // ------------------------------------------------------------------
+
+   private void runTicker() {
+      while (!shutdown) {
+         drainInboxes();
+         long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+         while (currentTick < nowTick) {
+            currentTick++;
+            cascade();
+            expire();
+         }
+         long nextTickAt = startNanos + (currentTick + 1) * tickNanos;
+         LockSupport.parkNanos(this, nextTickAt - System.nanoTime());
+      }
+      unfired = clearWheel();
+      workers.shutdown();
+   }
+
+   private void drainInboxes() {
+      TimerTask<?> task;
+      while ((task = scheduled.poll()) != null) {
+         if (task.isCancelled()) {
+            pending.add(-1);
+         } else {
+            insert(task);
+         }
+      }
+      while ((task = cancelled.poll()) != null) {
+         if (task.level >= 0) {
+            unlink(task);
+            pending.add(-1);
+         }
+      }
+      drainPasses++;
+   }
+
+   /** Re-inserts the slot of every level whose lower level just wrapped around. */
+   private void cascade() {
+      for (int level = 1; level < LEVELS; level++) {
+         int shift = WHEEL_BITS * level;
+         if ((currentTick & ((1L << shift) - 1)) != 0) {
+            return;
+         }
+         int slot = (int) (currentTick >>> shift) & WHEEL_MASK;
+         TimerTask<?> task = slots[level][slot];
+         slots[level][slot] = null;
+         while (task != null) {
+            TimerTask<?> next = task.next;
+            task.prev = task.next = null;
+            insert(task);
+            task = next;
+         }
+      }
+   }
+
+   private void expire() {
+      int slot = (int) currentTick & WHEEL_MASK;
+      TimerTask<?> task = slots[0][slot];
+      slots[0][slot] = null;
+      while (task != null) {
+         TimerTask<?> next = task.next;
+         task.prev = task.next = null;
+         task.level = -1;
+         if (task.deadlineTick > currentTick) {
+            insert(task);   // was clamped to the wheel's horizon
+         } else {
+            pending.add(-1);
+            try {
+               workers.execute(task);
+            } catch (RejectedExecutionException e) {
+               task.cancel(false);
+            }
+         }
+         task = next;
+      }
+   }
+
+   private void insert(TimerTask<?> task) {
+      long deadlineTick = ceilTick(task.deadlineNanos);
+      task.deadlineTick = deadlineTick;
+      long placeAt = Math.min(Math.max(deadlineTick, currentTick + 1), currentTick + MAX_TICKS);
+      long distance = placeAt - currentTick;
+      int level = 0;
+      while (distance >= 1L << (WHEEL_BITS * (level + 1))) {
+         level++;
+      }
+      int slot = (int) (placeAt >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+      TimerTask<?> head = slots[level][slot];
+      task.next = head;
+      task.prev = null;
+      if (head != null) {
+         head.prev = task;
+      }
+      slots[level][slot] = task;
+      task.level = level;
+      task.slot = slot;
+   }
+
+   private void unlink(TimerTask<?> task) {
+      if (task.prev != null) {
+         task.prev.next = task.next;
+      } else {
+         slots[task.level][task.slot] = task.next;
+      }
+      if (task.next != null) {
+         task.next.prev = task.prev;
+      }
+      task.prev = task.next = null;
+      task.level = -1;
+   }
+
+   private long ceilTick(long deadlineNanos) {
+      long sinceStart = deadlineNanos - startNanos;
+      return sinceStart <= 0 ? 0 : (sinceStart + tickNanos - 1) / tickNanos;
+   }
+
+   private List<Runnable> clearWheel() {
+      List<Runnable> dropped = new ArrayList<>();
+      drainInboxes();
+      for (TimerTask<?>[] level : slots) {
+         for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+            for (TimerTask<?> task = level[slot]; task != null; task = task.next) {
+               task.level = -1;
+               task.cancel(false);
+               dropped.add(task);
+               pending.add(-1);
+            }
+            level[slot] = null;
+         }
+      }
+      return dropped;
+   }
+
+   /**
+    * A timer: the future handed back to the caller and, at the same time, an
+    * intrusive node of a slot list (prev/next), so cancel needs no search.
+    */
+   private final class TimerTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+      /** 0 = one-shot, > 0 = fixed rate, < 0 = fixed delay. */
+      private final long periodNanos;
+      private volatile long deadlineNanos;
+
+      // Wheel position; ticker thread only. level == -1 means "not in the wheel".
+      private long deadlineTick;
+      private TimerTask<?> prev;
+      private TimerTask<?> next;
+      private int level = -1;
+      private int slot;
+
+      TimerTask(Callable<V> callable, long deadlineNanos, long periodNanos) {
+         super(callable);
+         this.deadlineNanos = deadlineNanos;
+         this.periodNanos = periodNanos;
+      }
+
+      @Override
+      public boolean isPeriodic() {
+         return periodNanos != 0;
+      }
+
+      @Override
+      public void run() {
+         if (!isPeriodic()) {
+            super.run();
+         } else if (runAndReset()) {
+            deadlineNanos = periodNanos > 0 ? deadlineNanos + periodNanos : System.nanoTime() - periodNanos;
+            reschedule(this);
+         }
+      }
+
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+         boolean cancelledNow = super.cancel(mayInterruptIfRunning);
+         if (cancelledNow) {
+            cancelled.add(this);
+         }
+         return cancelledNow;
+      }
+
+      @Override
+      public long getDelay(TimeUnit unit) {
+         return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+      }
+
+      @Override
+      public int compareTo(Delayed other) {
+         if (other == this) {
+            return 0;
+         }
+         return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+      }
+   }
+}
@@ -0,0 +1,139 @@
+package MultithreadingInJava;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands a turn around N parties in a fixed order: party 0, then 1, ... then
+ * back to 0. Generalizes "print even and odd numbers in order" to ordered
+ * stage execution with any number of threads.
+ *
+ * Design:
+ * 1. One turn counter, a volatile long on its own padded cache line. Only the
+ *    party holding the turn writes it, so passing the turn is a plain volatile
+ *    store - no CAS, no monitor.
+ * 2. The order is a precomputed table: order[turn % order.length] is the party
+ *    whose turn it is. Round-robin is weights 1,1,...,1; weighted orders
+ *    repeat a party, e.g. weights 2,1 gives 0,0,1,0,0,1,...
+ * 3. Waiting uses a WaitStrategy: spin for the lowest handoff latency, or
+ *    spinThenPark to free the core. Before parking a party publishes its
+ *    thread in its own slot, so ending a turn unparks only the next party
+ *    instead of notifyAll() waking everyone (same protocol as Waiters, with a
+ *    single slot per party so the handoff allocates nothing).
+ *
+ * Usage (one thread per party; interrupts do not end awaitTurn, the flag is kept):
+ *    sequencer.awaitTurn(me);
+ *    ... work that must happen in order ...
+ *    sequencer.endTurn();
+ *
+ * vs wait/notifyAll on a monitor: every handoff there takes the monitor twice
+ * and wakes all N-1 waiters, of which N-2 go straight back to sleep.
+ */
+class TurnSequencer {
+   // 16 longs = 128 bytes on each side of the turn counter (same padding as StripedCounter)
+   private static final int PAD = 16;
+   private static final int TURN = PAD;
+   private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+   private static final VarHandle THREADS = MethodHandles.arrayElementVarHandle(Thread[].class);
+
+   private final long[] turnCell = new long[2 * PAD + 1];
+   private final int[] order;
+   private final int parties;
+   private final WaitStrategy waitStrategy;
+   private final Thread[] parked;   // parked[p] = thread of party p while it may be parked
+
+   /**
+    * @param weights weights[i] = consecutive turns party i gets per round (>= 1)
+    */
+   TurnSequencer(WaitStrategy waitStrategy, int... weights) {
+      if (weights.length < 1) {
+         throw new IllegalArgumentException("Need at least one party");
+      }
+      int length = 0;
+      for (int weight : weights) {
+         if (weight < 1) {
+            throw new IllegalArgumentException("Weights must be >= 1: " + weight);
+         }
+         length += weight;
+      }
+      this.order = new int[length];
+      int next = 0;
+      for (int party = 0; party < weights.length; party++) {
+         for (int i = 0; i < weights[party]; i++) {
+            order[next++] = party;
+         }
+      }
+      this.parties = weights.length;
+      this.waitStrategy = waitStrategy;
+      this.parked = new Thread[parties];
+   }
+
+   /** Strict round-robin over the given number of parties. */
+   static TurnSequencer roundRobin(int parties, WaitStrategy waitStrategy) {
+      int[] weights = new int[parties];
+      Arrays.fill(weights, 1);
+      return new TurnSequencer(waitStrategy, weights);
+   }
+
+   /** Blocks until it is party's turn. */
+   void awaitTurn(int party) {
+      if (party < 0 || party >= parties) {
+         throw new IllegalArgumentException("No such party: " + party);
+      }
+      int parkFrom = waitStrategy.untimedParkFrom();
+      boolean registered = false;
+      boolean interrupted = false;
+      for (int idleCount = 0; currentParty() != party; idleCount++) {
+         if (!registered && idleCount >= parkFrom) {
+            THREADS.setVolatile(parked, party, Thread.currentThread());
+            registered = true;
+            continue;  // Check the turn once more before parking
+         }
+         waitStrategy.idle(idleCount);
+         interrupted |= Thread.interrupted();
+      }
+      if (registered) {
+         THREADS.setRelease(parked, party, null);
+      }
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /** Passes the turn on. Must only be called by the party holding the turn. */
+   void endTurn() {
+      long next = (long) LONGS.getOpaque(turnCell, TURN) + 1;
+      LONGS.setVolatile(turnCell, TURN, next);
+      Thread waiter = (Thread) THREADS.getVolatile(parked, order[(int) (next % order.length)]);
+      if (waiter != null) {
+         LockSupport.unpark(waiter);
+      }
+   }
+
+   /** awaitTurn + action + endTurn, repeated for the given number of turns. */
+   void runTurns(int party, int turns, Runnable action) {
+      for (int i = 0; i < turns; i++) {
+         awaitTurn(party);
+         try {
+            action.run();
+         } finally {
+            endTurn();
+         }
+      }
+   }
+
+   /** Number of turns ended so far. */
+   long turn() {
+      return (long) LONGS.getVolatile(turnCell, TURN);
+   }
+
+   int currentParty() {
+      return order[(int) (turn() % order.length)];
+   }
+
+   int parties() {
+      return parties;
+   }
+}
@@ -0,0 +1,132 @@
+package MultithreadingInJava;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs very many I/O-style tasks on virtual threads with a cap on how many run at once.
+ *
+ * Why not "start 100,000 virtual threads in a loop" (old VirtualThreadExample)?
+ * - Nothing limits the load on the downstream service the tasks call
+ * - Keeping every Thread in a list just to join it costs memory per task
+ * - Without waiting, the JVM exits before the work is done
+ *
+ * How it works:
+ * 1. submit() takes a permit from a Semaphore before starting the virtual
+ *    thread; when all permits are in use the submitter waits (backpressure)
+ * 2. The task releases its permit when it finishes, successfully or not
+ * 3. awaitCompletion() takes all permits, which is only possible once no task
+ *    is running, then gives them back - no thread references are kept
+ * 4. Counters give tasks/s and in-flight count; the heap is sampled about every
+ *    HEAP_SAMPLE_INTERVAL completions to report heap used per 1M tasks
+ */
+class VirtualTaskRunner implements AutoCloseable {
+   private static final int HEAP_SAMPLE_INTERVAL = 1 << 16;
+
+   /**
+    * Snapshot of the runner's counters.
+    */
+   record Stats(long submitted, long completed, long failed, int inFlight,
+                double tasksPerSecond, long heapUsedBytes, long heapBytesPerMillionTasks) {
+      @Override
+      public String toString() {
+         return String.format("submitted=%d completed=%d failed=%d inFlight=%d tasks/s=%.0f heapUsed=%dMB heapPer1MTasks=%dMB",
+               submitted, completed, failed, inFlight, tasksPerSecond,
+               heapUsedBytes >> 20, heapBytesPerMillionTasks >> 20);
+      }
+   }
+
+   private final int maxConcurrency;
+   private final Semaphore permits;
+   private final ThreadFactory factory;
+   private final StripedCounter submitted = new StripedCounter();
+   private final StripedCounter completed = new StripedCounter();
+   private final StripedCounter failed = new StripedCounter();
+   private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+   private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+   private final long heapAtStart;
+   private final AtomicLong peakHeap = new AtomicLong();
+   private final long startNanos = System.nanoTime();
+
+   VirtualTaskRunner(int maxConcurrency) {
+      this(maxConcurrency, "vtask-");
+   }
+
+   VirtualTaskRunner(int maxConcurrency, String namePrefix) {
+      if (maxConcurrency <= 0) {
+         throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+      }
+      this.maxConcurrency = maxConcurrency;
+      this.permits = new Semaphore(maxConcurrency);
+      // A ThreadFactory from the builder is thread-safe, the builder itself is not
+      this.factory = Thread.ofVirtual().name(namePrefix, 0).factory();
+      this.heapAtStart = memory.getHeapMemoryUsage().getUsed();
+   }
+
+   /**
+    * Starts the task on a new virtual thread, waiting while maxConcurrency tasks are running.
+    */
+   public void submit(Runnable task) throws InterruptedException {
+      permits.acquire();
+      submitted.increment();
+      try {
+         factory.newThread(() -> run(task)).start();
+      } catch (RuntimeException | Error e) {
+         permits.release();
+         throw e;
+      }
+   }
+
+   /**
+    * Waits until every submitted task has finished.
+    */
+   public void awaitCompletion() throws InterruptedException {
+      permits.acquire(maxConcurrency);
+      permits.release(maxConcurrency);
+   }
+
+   @Override
+   public void close() throws InterruptedException {
+      awaitCompletion();
+   }
+
+   /**
+    * @return the first exception thrown by a task, or null
+    */
+   public Throwable firstFailure() {
+      return firstFailure.get();
+   }
+
+   public Stats stats() {
+      long done = completed.getCount();
+      double seconds = (System.nanoTime() - startNanos) / 1e9;
+      long heapUsed = memory.getHeapMemoryUsage().getUsed();
+      long heapGrowth = Math.max(0, Math.max(peakHeap.get(), heapUsed) - heapAtStart);
+      return new Stats(submitted.getCount(), done, failed.getCount(),
+            maxConcurrency - permits.availablePermits(),
+            done / seconds, heapUsed,
+            done == 0 ? 0 : (long) (heapGrowth * (1_000_000.0 / done)));
+   }
+
+   private void run(Runnable task) {
+      try {
+         task.run();
+      } catch (Throwable t) {
+         failed.increment();
+         firstFailure.compareAndSet(null, t);
+      } finally {
+         completed.increment();
+         permits.release();
+         // Sample roughly every HEAP_SAMPLE_INTERVAL completions without a shared counter
+         if (ThreadLocalRandom.current().nextInt(HEAP_SAMPLE_INTERVAL) == 0) {
+            long used = memory.getHeapMemoryUsage().getUsed();
+            peakHeap.accumulateAndGet(used, Math::max);
+         }
+      }
+   }
+}
@@ -1,33 +1,39 @@
 package MultithreadingInJava;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * This class demonstrates the usage of Virtual Threads in Java (introduced in JDK 21).
  * Virtual Threads are lightweight threads that are designed for concurrent applications
- * that require a large number of threads. They are also known as "carrier threads" or
- * "fibers" in some other programming languages.
+ * that require a large number of threads. They are scheduled by the JVM onto a small
+ * pool of platform "carrier threads" (similar to "fibers" in some other languages).
  * 
  * Key benefits of Virtual Threads:
  * 1. Very lightweight (few bytes of memory vs. ~2MB for platform threads)
  * 2. Efficient scheduling using the ForkJoinPool
  * 3. Ideal for I/O-bound applications
  * 4. Can create millions of virtual threads without system resources issues
+ *
+ * The tasks are started through a VirtualTaskRunner:
+ * - At most maxConcurrency API calls run at once, so the downstream service is not flooded
+ * - No list of Thread objects is kept; awaitCompletion() waits for all of them
+ * - The JVM no longer exits before the work is done
  */
 public class VirtualThreadExample {
-    public static void main(String[] args){
+    // 100,000 threads logging: the async logger keeps them off the System.out monitor
+    // (BLOCK policy by default: every line is kept; -Dmultithreading.log.policy=DROP trades lines for speed)
+    private static final AsyncLogger LOG = AsyncLogger.shared();
+
+    public static void main(String[] args) throws InterruptedException {
            // Creating 100,000 threads - this would be impractical with platform threads
            // but is easily handled by virtual threads
-           final int numberofthreads=100000;
-    
-    // List to keep track of all created threads
-    List<Thread> threadList=new ArrayList<>();
+           final int numberofthreads = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+           // How many API calls may be in flight at the same time
+           final int maxConcurrency = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
 
     // Define the task that each thread will execute
     // This simulates an I/O-bound operation (like making API calls)
     Runnable task =()->{
-       System.out.println("Making API calls.");
+       LOG.log("Making API calls.");
        try {
           // Simulate I/O operation with a 1-second delay
           // Virtual threads are optimized for such blocking operations
@@ -37,37 +43,21 @@ public class VirtualThreadExample {
        catch (InterruptedException e) {
           throw new RuntimeException(e);
        }
-       System.out.println("Api call completed");
+       LOG.log("Api call completed");
     };
 
-
-      // Create and start 100,000 virtual threads
-      for(int i=0;i<numberofthreads;i++){
-         // Traditional platform thread creation (commented out)
-         // This would likely cause OutOfMemoryError with 100,000 threads
-         //  Thread thread=new Thread(task);
-
-         // Create a virtual thread using the factory method
-         // Virtual threads are much more lightweight than platform threads
-         // They are mounted on carrier threads from the ForkJoinPool when they need to run
-         Thread thread=Thread.ofVirtual().unstarted(task);
-         
-         // Set as daemon thread - will not prevent JVM shutdown
-         thread.setDaemon(true);
-         
-         // Give each thread a unique name for identification
-         thread.setName("Thread"+i);
-
-          // Start the virtual thread
-          // The thread will be scheduled on the ForkJoinPool when it needs to run
-          thread.start();
-          System.out.println("Thread Number is:- " + i);
-          
-          // Keep track of the thread in our list
-          threadList.add(thread);
+      try (VirtualTaskRunner runner = new VirtualTaskRunner(maxConcurrency, "Thread")) {
+         for(int i=0;i<numberofthreads;i++){
+            // Each submit starts one virtual thread (named Thread0, Thread1, ...)
+            // and waits first if maxConcurrency tasks are already running
+            runner.submit(task);
+            if (i % 10000 == 0) {
+               LOG.log("In progress: ", runner.stats());
+            }
+         }
+         // Wait for all of them without holding any Thread references
+         runner.awaitCompletion();
+         LOG.log("Done: ", runner.stats());
       }
-      // Note: At this point, we've created 100,000 virtual threads
-      // This would be impossible with platform threads on most systems
-      // but is easily handled by virtual threads due to their lightweight nature
     }
 }
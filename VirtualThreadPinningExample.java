@@ -0,0 +1,201 @@
+package MultithreadingInJava;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * 🎯 QUICK GUIDE: Virtual Thread Pinning
+ *
+ * 1. What is pinning?
+ *    - A virtual thread normally unmounts from its carrier (platform) thread
+ *      when it blocks, so a few carriers can serve millions of virtual threads
+ *    - Inside a synchronized block (JDK 21) it cannot unmount: blocking there
+ *      "pins" the carrier, which then sits idle until the block ends
+ *
+ * 2. Why SbiAccount is a problem:
+ *    - withdrawAmount is synchronized and sleeps (slow work) inside the monitor
+ *    - Customers queued on the monitor pin their carriers too
+ *    - With a handful of carriers (= CPU cores) the whole scheduler stalls
+ *
+ * 3. The fix: NonPinningSbiAccount
+ *    - Same logic, but guarded by a ReentrantLock: a virtual thread waiting for
+ *      or sleeping under a j.u.c lock unmounts and frees its carrier
+ *
+ * 4. Detection: PinningMonitor
+ *    - Streams the JFR event jdk.VirtualThreadPinned (threshold 0) and counts
+ *      pinning events and the total time carriers spent pinned
+ *
+ * Run: java MultithreadingInJava.VirtualThreadPinningExample [customers] [accounts]
+ */
+public class VirtualThreadPinningExample {
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
+   public static void main(String[] args) throws InterruptedException {
+      int customers = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+      int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+      for (String strategy : new String[]{"synchronized", "nonPinning"}) {
+         Account[] bank = new Account[accounts];
+         for (int i = 0; i < accounts; i++) {
+            // 1 ms of slow work per withdrawal instead of the example's 2 s
+            bank[i] = "synchronized".equals(strategy) ? new SbiAccount(Integer.MAX_VALUE, 1) : new NonPinningSbiAccount(Integer.MAX_VALUE, 1);
+         }
+         LOG.log(strategy + ": ", runCustomers(bank, customers));
+      }
+   }
+
+   /**
+    * Runs one withdrawal per customer, each on its own virtual thread, and
+    * reports elapsed time and pinning.
+    */
+   static String runCustomers(Account[] bank, int customers) throws InterruptedException {
+      try (PinningMonitor monitor = new PinningMonitor()) {
+         long start = System.nanoTime();
+         try (VirtualTaskRunner runner = new VirtualTaskRunner(customers, "customer-")) {
+            for (int i = 0; i < customers; i++) {
+               runner.submit(() -> bank[ThreadLocalRandom.current().nextInt(bank.length)].withdrawAmount(1));
+            }
+         }
+         long elapsedNanos = System.nanoTime() - start;
+         monitor.stop();
+         return String.format("%d customers in %d ms (%.0f withdrawals/s), %s",
+               customers, elapsedNanos / 1_000_000, customers / (elapsedNanos / 1e9), monitor.summary(elapsedNanos));
+      }
+   }
+}
+
+/**
+ * SbiAccount without synchronized: a ReentrantLock lets virtual threads
+ * unmount while they wait for the lock or sleep while holding it.
+ */
+class NonPinningSbiAccount implements Account {
+   private static final AsyncLogger LOG = AsyncLogger.shared();
+
+   private final ReentrantLock lock = new ReentrantLock();
+   private int balance;  // Protected by lock
+
+   // Simulated processing time of one withdrawal (2 seconds in the example)
+   private final long processingMillis;
+
+   NonPinningSbiAccount() {
+      this(1000, 2000);
+   }
+
+   NonPinningSbiAccount(int balance, long processingMillis) {
+      this.balance = balance;
+      this.processingMillis = processingMillis;
+   }
+
+   @Override
+   public boolean withdrawAmount(int amount) {
+      lock.lock();  // Unlike a monitor, waiting here unmounts the virtual thread
+      try {
+         LOG.log("request to Withdraw $ ", amount);
+         if (balance < amount) {
+            LOG.log("Insufficient balance....");
+            return false;
+         }
+         try {
+            LOG.log("Withdrawal in progress.....");
+            if (processingMillis > 0) {
+               Thread.sleep(processingMillis);  // Unmounts too: the carrier stays free
+            }
+         }
+         catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+         }
+         balance -= amount;
+         LOG.log("Remaining balance is ", balance);
+         return true;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public int getBalance() {
+      lock.lock();
+      try {
+         return balance;
+      } finally {
+         lock.unlock();
+      }
+   }
+}
+
+/**
+ * Counts virtual thread pinning through the JFR event stream.
+ *
+ * Events arrive asynchronously (JFR flushes about once a second); call
+ * stop() before reading the totals so every recorded event is delivered.
+ */
+class PinningMonitor implements AutoCloseable {
+   private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+   private final RecordingStream stream = new RecordingStream();
+   private final AtomicLong pinnedEvents = new AtomicLong();
+   private final AtomicLong pinnedNanos = new AtomicLong();
+   private volatile String firstPinnedFrame;
+
+   PinningMonitor() {
+      stream.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+      stream.onEvent(PINNED_EVENT, this::onPinned);
+      stream.startAsync();
+   }
+
+   private void onPinned(RecordedEvent event) {
+      pinnedEvents.incrementAndGet();
+      pinnedNanos.addAndGet(event.getDuration().toNanos());
+      if (firstPinnedFrame == null && event.getStackTrace() != null) {
+         // Report the first application frame, not the JDK parking internals
+         for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.")) {
+               firstPinnedFrame = type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+               break;
+            }
+         }
+      }
+   }
+
+   /**
+    * Stops recording and waits until all recorded events have been delivered.
+    */
+   public void stop() {
+      stream.stop();
+   }
+
+   public long pinnedEvents() {
+      return pinnedEvents.get();
+   }
+
+   public long pinnedNanos() {
+      return pinnedNanos.get();
+   }
+
+   /**
+    * @return share of the available carrier time that was spent pinned
+    */
+   public double pinnedCarrierShare(long elapsedNanos) {
+      int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+            Runtime.getRuntime().availableProcessors());
+      return Math.min(1.0, pinnedNanos.get() / ((double) elapsedNanos * carriers));
+   }
+
+   public String summary(long elapsedNanos) {
+      return String.format("pinned events=%d, pinned time=%d ms, carriers pinned %.1f%% of the time%s",
+            pinnedEvents(), pinnedNanos() / 1_000_000, 100 * pinnedCarrierShare(elapsedNanos),
+            firstPinnedFrame == null ? "" : ", first at " + firstPinnedFrame);
+   }
+
+   @Override
+   public void close() {
+      stream.close();
+   }
+}
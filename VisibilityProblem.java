@@ -1,9 +1,30 @@
 package MultithreadingInJava;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The reader used to wait with an empty loop: while(!vsb.isFlag()){}. With
+ * volatile the change is visible, but the loop burns a whole core for the
+ * full second it waits.
+ *
+ * Now the reader waits with a WaitStrategy and setFlag() wakes it up, so the
+ * strategy decides the trade-off:
+ * - busySpin / yielding: notices the change fastest, costs a core while waiting
+ * - spinThenPark:        sleeps in the kernel, woken by setFlag() (default)
+ * - timedPark / parking: polls with short sleeps, nobody needs to wake it
+ *
+ * Run with a strategy name as the first argument, e.g. busySpin, to compare
+ * the printed wakeup latency and CPU time.
+ */
 public class VisibilityProblem {
 
     //By using volatile keyword we can resolve the visibility problem.
 private volatile boolean flag;
 
+    // Readers parked while waiting for the flag; setFlag() wakes them
+    private final Waiters waiters = new Waiters();
+
 
   // Getter
     public boolean isFlag() {
@@ -12,29 +33,49 @@ private volatile boolean flag;
     // Setter
     public void setFlag(boolean flag) {
         this.flag = flag;
+        // Write first, then wake: a reader that parks after this sees flag == true
+        waiters.wakeAll();
+    }
+
+    // Waits until the flag is true, idling with the given strategy
+    public void awaitFlag(WaitStrategy strategy) {
+        waiters.await(this::isFlag, strategy);
     }
-    public static void main(String[] args){
+
+    public static void main(String[] args) throws InterruptedException {
         VisibilityProblem vsb= new VisibilityProblem();
+        String strategyName = args.length > 0 ? args[0] : "spinThenPark";
+        WaitStrategy strategy = WaitStrategy.named(strategyName);
+        long[] setAt = new long[1];
         Thread t1 = new Thread(
             () -> {
            try{
             Thread.sleep(1000);
            }catch(InterruptedException  ex){
-            
+            Thread.currentThread().interrupt();
            }
+            setAt[0] = System.nanoTime();
             vsb.setFlag(true);
-            
+
         });
 
       Thread t2 = new Thread(()->{
-         while(!vsb.isFlag()){
-         
-         }
+         ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+         long cpuBefore = threads.getCurrentThreadCpuTime();
+         // Instead of while(!vsb.isFlag()){} - same visibility, chosen CPU cost
+         vsb.awaitFlag(strategy);
+         long wokenAt = System.nanoTime();
+         long cpuMillis = (threads.getCurrentThreadCpuTime() - cpuBefore) / 1_000_000;
          System.out.println("Thread 2 is now completed.");
+         // setAt is written before the volatile flag, so it is visible here
+         System.out.println(strategyName + ": woke up " + (wokenAt - setAt[0]) / 1_000 + " us after the flag was set, used "
+               + cpuMillis + " ms CPU while waiting ~1000 ms");
       });
 
         t1.start();
         t2.start();
+        t1.join();
+        t2.join();
     }
-    
+
 }
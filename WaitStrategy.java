@@ -0,0 +1,179 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a thread waits when it cannot make progress (empty or full buffer,
+ * flag not set yet).
+ *
+ * The caller keeps a counter of how many times it has already idled in the
+ * current wait and passes it in, so a strategy can escalate from spinning to
+ * yielding to parking without keeping any state of its own.
+ *
+ * Trade-off (latency of noticing the change vs CPU burnt while waiting):
+ * - busySpin:      lowest latency, burns a full core while waiting
+ * - spinThenYield: near-spin latency, gives the core away to other runnable threads
+ * - parking:       spin, yield, then short timed parks; cheap on CPU, adds
+ *                  up to parkNanos of latency
+ * - spinThenPark:  spin briefly, then park until woken; no CPU while waiting,
+ *                  wakeup costs one unpark (a few microseconds). Needs a
+ *                  waker - the thread that changes the condition must call
+ *                  Waiters.wakeAll()
+ * - timedPark:     park straight away and poll every parkNanos; for background
+ *                  threads where nobody can wake the waiter
+ *
+ * Rule of thumb: latency-critical paths with a core to spare spin (or
+ * spinThenYield); everything else parks.
+ */
+@FunctionalInterface
+interface WaitStrategy {
+   int SPIN_TRIES = 100;
+   int YIELD_TRIES = 100;
+
+   /**
+    * Waits once.
+    *
+    * @param idleCount number of times this wait has already idled (0 on the first call)
+    */
+   void idle(int idleCount);
+
+   /**
+    * @return the idleCount from which idle() may park without a timeout, so the
+    *         waiter must be registered with a Waiters to be woken up;
+    *         Integer.MAX_VALUE if this strategy always wakes up by itself
+    */
+   default int untimedParkFrom() {
+      return Integer.MAX_VALUE;
+   }
+
+   static WaitStrategy busySpin() {
+      return idleCount -> Thread.onSpinWait();
+   }
+
+   static WaitStrategy yielding() {
+      return spinThenYield(SPIN_TRIES);
+   }
+
+   static WaitStrategy spinThenYield(int spinTries) {
+      return idleCount -> {
+         if (idleCount < spinTries) {
+            Thread.onSpinWait();
+         } else {
+            Thread.yield();
+         }
+      };
+   }
+
+   static WaitStrategy parking(long parkNanos) {
+      return idleCount -> {
+         if (idleCount < SPIN_TRIES) {
+            Thread.onSpinWait();
+         } else if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+         } else {
+            LockSupport.parkNanos(parkNanos);
+         }
+      };
+   }
+
+   static WaitStrategy spinThenPark(int spinTries) {
+      return new WaitStrategy() {
+         @Override
+         public void idle(int idleCount) {
+            if (idleCount < spinTries) {
+               Thread.onSpinWait();
+            } else {
+               LockSupport.park(this);
+            }
+         }
+
+         @Override
+         public int untimedParkFrom() {
+            return spinTries;
+         }
+      };
+   }
+
+   static WaitStrategy timedPark(long parkNanos) {
+      return idleCount -> LockSupport.parkNanos(parkNanos);
+   }
+
+   /**
+    * Looks a strategy up by name, for command lines and benchmark parameters:
+    * busySpin, yielding, parking, spinThenPark, timedPark.
+    */
+   static WaitStrategy named(String name) {
+      switch (name) {
+         case "busySpin":
+            return busySpin();
+         case "yielding":
+            return yielding();
+         case "parking":
+            return parking(1_000);
+         case "spinThenPark":
+            return spinThenPark(SPIN_TRIES);
+         case "timedPark":
+            return timedPark(1_000_000);
+         default:
+            throw new IllegalArgumentException("Unknown wait strategy: " + name);
+      }
+   }
+}
+
+/**
+ * Threads waiting for a condition, so the thread that makes it true can wake
+ * the ones that parked.
+ *
+ * Waiter:  waiters.await(() -> flag, strategy)
+ * Setter:  flag = true; waiters.wakeAll();
+ *
+ * A waiter registers itself before its last check of the condition and only
+ * then parks; the setter changes the condition before it looks for waiters.
+ * Both sides go through volatile memory, so either the waiter sees the new
+ * value or the setter sees the waiter - a wakeup is never lost. A setter with
+ * nobody parked pays for one isEmpty() check.
+ */
+class Waiters {
+   private final ConcurrentLinkedQueue<Thread> parked = new ConcurrentLinkedQueue<>();
+
+   /**
+    * Returns once condition is true, idling with strategy in between.
+    * Interrupts do not end the wait (like lock()); the flag is kept set.
+    */
+   void await(BooleanSupplier condition, WaitStrategy strategy) {
+      int parkFrom = strategy.untimedParkFrom();
+      boolean registered = false;
+      boolean interrupted = false;
+      try {
+         for (int idleCount = 0; !condition.getAsBoolean(); idleCount++) {
+            if (!registered && idleCount >= parkFrom) {
+               parked.add(Thread.currentThread());
+               registered = true;
+               continue;  // Check the condition once more before parking
+            }
+            strategy.idle(idleCount);
+            // A set interrupt flag makes park() return at once; clear it so parking still works
+            interrupted |= Thread.interrupted();
+         }
+      } finally {
+         if (registered) {
+            parked.remove(Thread.currentThread());
+         }
+         if (interrupted) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+
+   /** Call after making the condition true. */
+   void wakeAll() {
+      if (parked.isEmpty()) {
+         return;
+      }
+      for (Thread waiter : parked) {
+         LockSupport.unpark(waiter);
+      }
+   }
+}
@@ -0,0 +1,382 @@
+package MultithreadingInJava;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Durable, append-only journal of balance changes in a memory-mapped file.
+ *
+ * File layout:
+ *    header (64 bytes): magic, version, record size, epoch
+ *    record i (32 bytes, at 64 + (i - 1) * 32):
+ *       sequence (8) | epoch (4) | accountId (4) | delta (8) | checksum (4) | unused (4)
+ *
+ * Writing:
+ * 1. append() claims the next sequence number with one atomic increment; the
+ *    sequence decides the file position, so writers never wait for each other
+ * 2. The record is written into the mapping; its sequence field is written
+ *    last (release), which marks the record as complete
+ * 3. awaitDurable(sequence) returns once the record has been forced to disk
+ *
+ * Group commit (same leader/follower idea as GroupCommitSbiAccount):
+ * - Whoever gets the flush lock is the leader: it forces every complete
+ *   record since the last force with ONE force() call, then wakes the others
+ * - Everyone else parks; writers that arrive during a force are all covered
+ *   by the next one. One fsync is shared by the whole batch.
+ * - FSYNC_PER_OP is the baseline: every caller waits for the records before
+ *   its own to be complete, then forces them and its own with its own force()
+ *
+ * Recovery (open): records are replayed in sequence order until the first one
+ * that is missing, torn (bad checksum) or stale. With a checkpoint (see
+ * BalanceSnapshots) replay starts right after the checkpoint's sequence. Each open bumps the epoch in
+ * the header and new records carry it; epochs never go down along a valid
+ * journal, so an old record left behind a crash gap is recognized as stale
+ * once new records are written before it.
+ *
+ * Uses the FFM API (FileChannel.map into a MemorySegment), a preview API in
+ * JDK 21: run with java --enable-preview.
+ */
+class WithdrawalJournal implements AutoCloseable {
+
+   public enum Durability {
+      GROUP_COMMIT,
+      FSYNC_PER_OP
+   }
+
+   /** Receives every valid record while the journal is replayed. */
+   @FunctionalInterface
+   interface RecordHandler {
+      void apply(long sequence, int accountId, long delta);
+   }
+
+   static final int HEADER_SIZE = 64;
+   static final int RECORD_SIZE = 32;
+
+   private static final int MAGIC = 0x4A524E4C;  // "JRNL"
+   private static final int VERSION = 1;
+   private static final long H_MAGIC = 0;
+   private static final long H_VERSION = 4;
+   private static final long H_RECORD_SIZE = 8;
+   private static final long H_EPOCH = 12;
+
+   private static final long R_SEQUENCE = 0;
+   private static final long R_EPOCH = 8;
+   private static final long R_ACCOUNT = 12;
+   private static final long R_DELTA = 16;
+   private static final long R_CHECKSUM = 24;
+
+   // (MemorySegment, long offset) -> long; used for the release/acquire on the sequence field
+   private static final VarHandle SEQUENCE = MethodHandles.memorySegmentViewVarHandle(ValueLayout.JAVA_LONG);
+   private static final VarHandle DURABLE_SEQUENCE;
+
+   static {
+      try {
+         DURABLE_SEQUENCE = MethodHandles.lookup().findVarHandle(WithdrawalJournal.class, "durableSequence", long.class);
+      } catch (ReflectiveOperationException e) {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
+   private final Path file;
+   private final FileChannel channel;
+   private final Arena arena;
+   private final MemorySegment mapping;
+   private final long capacity;
+   private final int epoch;
+   private final Durability durability;
+
+   private final AtomicLong lastClaimed;
+   private volatile long durableSequence;
+   private final long replayedRecords;
+
+   private final ReentrantLock flushLock = new ReentrantLock();
+   private final Waiters waiters = new Waiters();
+   private final WaitStrategy waitStrategy = WaitStrategy.spinThenPark(WaitStrategy.SPIN_TRIES);
+   private final AtomicLong forces = new AtomicLong();
+
+   /**
+    * Opens (or creates) the journal and replays it into handler.
+    *
+    * @param capacity maximum number of records; the file is sized for it up
+    *                 front (sparse on most file systems)
+    */
+   WithdrawalJournal(Path file, long capacity, Durability durability, RecordHandler handler) throws IOException {
+      this(file, capacity, durability, 0, handler);
+   }
+
+   /**
+    * Opens the journal and replays only the records after afterSequence (the
+    * position of a checkpoint that already contains the earlier ones).
+    *
+    * @throws IOException if the journal ends before afterSequence
+    */
+   WithdrawalJournal(Path file, long capacity, Durability durability, long afterSequence, RecordHandler handler) throws IOException {
+      if (capacity < 1) {
+         throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+      }
+      this.file = file;
+      this.durability = durability;
+      this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      this.arena = Arena.ofShared();
+      try {
+         long existing = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+         this.capacity = Math.max(capacity, existing);
+         this.mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + this.capacity * RECORD_SIZE, arena);
+         this.epoch = readHeader() + 1;
+         long last = replay(afterSequence, handler);
+         this.replayedRecords = last - afterSequence;
+         this.lastClaimed = new AtomicLong(last);
+         this.durableSequence = last;
+         writeHeader();
+      } catch (IOException | RuntimeException e) {
+         arena.close();
+         channel.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Writes a record and returns its sequence number. Not durable yet: call
+    * awaitDurable(sequence) before acknowledging the change to anyone.
+    *
+    * @throws IllegalStateException if the journal is full
+    */
+   long append(int accountId, long delta) {
+      long sequence = lastClaimed.incrementAndGet();
+      if (sequence > capacity) {
+         throw new IllegalStateException("Journal full: " + capacity + " records in " + file);
+      }
+      long offset = offset(sequence);
+      mapping.set(ValueLayout.JAVA_INT, offset + R_EPOCH, epoch);
+      mapping.set(ValueLayout.JAVA_INT, offset + R_ACCOUNT, accountId);
+      mapping.set(ValueLayout.JAVA_LONG, offset + R_DELTA, delta);
+      mapping.set(ValueLayout.JAVA_INT, offset + R_CHECKSUM, checksum(sequence, epoch, accountId, delta));
+      SEQUENCE.setRelease(mapping, offset + R_SEQUENCE, sequence);  // Publish: the record is complete
+      waiters.wakeAll();  // A flusher may be waiting for exactly this record
+      return sequence;
+   }
+
+   /** Blocks until the record with this sequence number (and all before it) is on disk. */
+   void awaitDurable(long sequence) {
+      if (durability == Durability.FSYNC_PER_OP) {
+         forceThroughOwn(sequence);
+         return;
+      }
+      while (durableSequence < sequence) {
+         if (flushLock.tryLock()) {
+            boolean forced;
+            try {
+               forced = durableSequence >= sequence || forceCompleted();
+            } finally {
+               flushLock.unlock();
+            }
+            waiters.wakeAll();
+            if (!forced) {
+               // The next record is still being written: wait for its appender instead of spinning on the lock
+               waiters.await(() -> durableSequence >= sequence || isComplete(durableSequence + 1), waitStrategy);
+            }
+         } else {
+            // Wake up when our record is durable or the leader is done (then try to lead)
+            waiters.await(() -> durableSequence >= sequence || !flushLock.isLocked(), waitStrategy);
+         }
+      }
+   }
+
+   /** append + awaitDurable. */
+   long appendDurably(int accountId, long delta) {
+      long sequence = append(accountId, delta);
+      awaitDurable(sequence);
+      return sequence;
+   }
+
+   /**
+    * Forces every complete record up to sequence, whoever appended it. All
+    * records up to sequence must have been appended (e.g. at a checkpoint cut).
+    */
+   void forceThrough(long sequence) {
+      flushLock.lock();
+      try {
+         while (durableSequence < sequence) {
+            if (!forceCompleted()) {
+               waiters.await(() -> isComplete(durableSequence + 1), waitStrategy);
+            }
+         }
+      } finally {
+         flushLock.unlock();
+      }
+      waiters.wakeAll();
+   }
+
+   /** Sequence number of the last record claimed by append(). */
+   long lastSequence() {
+      return Math.min(lastClaimed.get(), capacity);
+   }
+
+   /** Every record up to this one is on disk. */
+   long durableSequence() {
+      return durableSequence;
+   }
+
+   /** Number of force() calls so far: records / forces is the average group-commit batch. */
+   long forces() {
+      return forces.get();
+   }
+
+   /** Records replayed when the journal was opened (only those after the checkpoint, if any). */
+   long replayedRecords() {
+      return replayedRecords;
+   }
+
+   long capacity() {
+      return capacity;
+   }
+
+   Path file() {
+      return file;
+   }
+
+   /** Forces everything appended so far and unmaps the file. */
+   @Override
+   public void close() throws IOException {
+      flushLock.lock();
+      try {
+         forceCompleted();
+      } finally {
+         flushLock.unlock();
+      }
+      arena.close();
+      channel.close();
+   }
+
+   // ------------------------------------------------------------------
+
+   /**
+    * Leader only: forces the contiguous run of complete records after durableSequence.
+    *
+    * @return false if nothing was forced because the next record is still being written
+    */
+   private boolean forceCompleted() {
+      long from = durableSequence + 1;
+      long limit = Math.min(lastClaimed.get(), capacity);
+      long to = from - 1;
+      while (to < limit && (long) SEQUENCE.getAcquire(mapping, offset(to + 1) + R_SEQUENCE) == to + 1) {
+         to++;
+      }
+      if (to < from) {
+         return false;
+      }
+      mapping.asSlice(offset(from), (to - from + 1) * RECORD_SIZE).force();
+      forces.incrementAndGet();
+      advanceDurable(to);
+      return true;
+   }
+
+   /**
+    * FSYNC_PER_OP: one force() per caller, covering every record up to sequence
+    * that is not durable yet. Replay stops at the first gap, so a record may only
+    * count as durable once all the records before it are.
+    */
+   private void forceThroughOwn(long sequence) {
+      long from = Math.min(durableSequence + 1, sequence);
+      for (long s = from; s <= sequence; s++) {
+         long next = s;
+         waiters.await(() -> isComplete(next), waitStrategy);
+      }
+      mapping.asSlice(offset(from), (sequence - from + 1) * RECORD_SIZE).force();
+      forces.incrementAndGet();
+      // Everything before from was forced by whoever raised durableSequence to from - 1
+      advanceDurable(sequence);
+      waiters.wakeAll();
+   }
+
+   /** Raises durableSequence to at least to; FSYNC_PER_OP callers force concurrently. */
+   private void advanceDurable(long to) {
+      for (long durable = durableSequence; durable < to; durable = durableSequence) {
+         if (DURABLE_SEQUENCE.compareAndSet(this, durable, to)) {
+            return;
+         }
+      }
+   }
+
+   private boolean isComplete(long sequence) {
+      return sequence <= capacity && (long) SEQUENCE.getAcquire(mapping, offset(sequence) + R_SEQUENCE) == sequence;
+   }
+
+   /** @return the previous epoch, 0 for a new file */
+   private int readHeader() throws IOException {
+      int magic = mapping.get(ValueLayout.JAVA_INT, H_MAGIC);
+      if (magic == 0) {
+         return 0;
+      }
+      if (magic != MAGIC || mapping.get(ValueLayout.JAVA_INT, H_VERSION) != VERSION
+            || mapping.get(ValueLayout.JAVA_INT, H_RECORD_SIZE) != RECORD_SIZE) {
+         throw new IOException("Not a journal file (or an incompatible version): " + file);
+      }
+      return mapping.get(ValueLayout.JAVA_INT, H_EPOCH);
+   }
+
+   private void writeHeader() {
+      mapping.set(ValueLayout.JAVA_INT, H_MAGIC, MAGIC);
+      mapping.set(ValueLayout.JAVA_INT, H_VERSION, VERSION);
+      mapping.set(ValueLayout.JAVA_INT, H_RECORD_SIZE, RECORD_SIZE);
+      mapping.set(ValueLayout.JAVA_INT, H_EPOCH, epoch);
+      mapping.asSlice(0, HEADER_SIZE).force();
+   }
+
+   /** @return the sequence number of the last valid record */
+   private long replay(long afterSequence, RecordHandler handler) throws IOException {
+      long sequence = afterSequence;
+      int previousEpoch = 0;
+      if (afterSequence > 0) {
+         long offset = afterSequence <= capacity ? offset(afterSequence) : -1;
+         if (offset < 0 || !valid(afterSequence, offset, epoch)) {
+            throw new IOException("Journal " + file + " ends before checkpoint position " + afterSequence);
+         }
+         previousEpoch = mapping.get(ValueLayout.JAVA_INT, offset + R_EPOCH);
+      }
+      while (sequence < capacity) {
+         long next = sequence + 1;
+         long offset = offset(next);
+         int recordEpoch = mapping.get(ValueLayout.JAVA_INT, offset + R_EPOCH);
+         if (recordEpoch < previousEpoch || !valid(next, offset, epoch)) {
+            break;  // End of the journal: missing, torn or stale record
+         }
+         if (handler != null) {
+            handler.apply(next, mapping.get(ValueLayout.JAVA_INT, offset + R_ACCOUNT), mapping.get(ValueLayout.JAVA_LONG, offset + R_DELTA));
+         }
+         previousEpoch = recordEpoch;
+         sequence = next;
+      }
+      return sequence;
+   }
+
+   /** Complete, untorn record with this sequence, written before epoch beforeEpoch. */
+   private boolean valid(long sequence, long offset, int beforeEpoch) {
+      int recordEpoch = mapping.get(ValueLayout.JAVA_INT, offset + R_EPOCH);
+      return mapping.get(ValueLayout.JAVA_LONG, offset + R_SEQUENCE) == sequence && recordEpoch < beforeEpoch
+            && mapping.get(ValueLayout.JAVA_INT, offset + R_CHECKSUM) == checksum(sequence, recordEpoch,
+                  mapping.get(ValueLayout.JAVA_INT, offset + R_ACCOUNT), mapping.get(ValueLayout.JAVA_LONG, offset + R_DELTA));
+   }
+
+   private static long offset(long sequence) {
+      return HEADER_SIZE + (sequence - 1) * RECORD_SIZE;
+   }
+
+   /** Cheap 32-bit mix of all fields; detects torn and half-written records. */
+   private static int checksum(long sequence, int epoch, int accountId, long delta) {
+      long h = sequence * 0x9E3779B97F4A7C15L;
+      h = (h ^ epoch) * 0xBF58476D1CE4E5B9L;
+      h = (h ^ accountId) * 0x94D049BB133111EBL;
+      h = (h ^ delta) * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+   }
+}
@@ -0,0 +1,77 @@
+package MultithreadingInJava;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link Account} locking strategies under contention.
+ *
+ * All benchmark threads withdraw from one shared account, so the numbers show
+ * how each strategy behaves when customers queue up on the same lock.
+ * - withdrawThroughput: operations per second
+ * - withdrawLatency: sampled latency (JMH reports p50/p90/p99/p99.9/p99.99)
+ *
+ * Run it for 1..N threads with {@link BenchmarkRunner}, e.g.
+ * java -cp target/benchmarks.jar MultithreadingInJava.BenchmarkRunner AccountBenchmark 1,2,4,8
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dmultithreading.log.policy=DROP")  // The accounts log every call: do not measure the log flusher
+public class AccountBenchmark {
+
+   @Param({"synchronized", "reentrantLock", "nonPinning", "groupCommit"})
+   public String strategy;
+
+   // Simulated slow work inside the critical section (the examples use 2000 ms);
+   // group commit only pays off when there is slow work to share
+   @Param({"0", "1"})
+   public long processingMillis;
+
+   private Account account;
+   private PrintStream originalOut;
+
+   @Setup(Level.Trial)
+   public void silenceConsole() {
+      originalOut = QuietConsole.silence();
+   }
+
+   @Setup(Level.Iteration)
+   public void openAccount() {
+      // Large enough that one 2 s iteration never runs the balance dry
+      account = Accounts.create(strategy, Integer.MAX_VALUE, processingMillis);
+   }
+
+   @TearDown(Level.Trial)
+   public void restoreConsole() {
+      QuietConsole.restore(originalOut);
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.Throughput)
+   @OutputTimeUnit(TimeUnit.SECONDS)
+   public boolean withdrawThroughput() {
+      return account.withdrawAmount(1);
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.SampleTime)
+   @OutputTimeUnit(TimeUnit.NANOSECONDS)
+   public boolean withdrawLatency() {
+      return account.withdrawAmount(1);
+   }
+}
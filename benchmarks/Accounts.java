@@ -0,0 +1,25 @@
+package MultithreadingInJava;
+
+/**
+ * Creates an {@link Account} for a strategy name used as a JMH {@code @Param}.
+ */
+final class Accounts {
+
+   private Accounts() {
+   }
+
+   static Account create(String strategy, int balance, long processingMillis) {
+      switch (strategy) {
+         case "synchronized":
+            return new SbiAccount(balance, processingMillis);
+         case "reentrantLock":
+            return new LockBasedSbiAccount(balance, processingMillis);
+         case "nonPinning":
+            return new NonPinningSbiAccount(balance, processingMillis);
+         case "groupCommit":
+            return new GroupCommitSbiAccount(balance, processingMillis);
+         default:
+            throw new IllegalArgumentException("Unknown account strategy: " + strategy);
+      }
+   }
+}
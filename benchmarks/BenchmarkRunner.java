@@ -0,0 +1,46 @@
+package MultithreadingInJava;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs a set of JMH benchmarks once per thread count.
+ *
+ * JMH cannot use the thread count as a {@code @Param}, so this runner repeats
+ * the selected benchmarks for every requested count and writes one JSON result
+ * file per run to target/.
+ *
+ * Usage: BenchmarkRunner [benchmark regex] [comma separated thread counts]
+ * e.g.   BenchmarkRunner AccountBenchmark 1,2,4,8
+ */
+public class BenchmarkRunner {
+
+   public static void main(String[] args) throws RunnerException {
+      String include = args.length > 0 ? args[0] : "AccountBenchmark";
+      int[] threadCounts = args.length > 1
+            ? Arrays.stream(args[1].split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray()
+            : defaultThreadCounts();
+
+      for (int threads : threadCounts) {
+         Options options = new OptionsBuilder()
+               .include(include)
+               .threads(threads)
+               .resultFormat(ResultFormatType.JSON)
+               .result("target/jmh-" + include.replaceAll("\\W", "_") + "-" + threads + "t.json")
+               .build();
+         new Runner(options).run();
+      }
+   }
+
+   // 1, 2, 4, ... up to the number of available cores
+   private static int[] defaultThreadCounts() {
+      int cores = Runtime.getRuntime().availableProcessors();
+      return IntStream.iterate(1, t -> t <= cores, t -> t * 2).toArray();
+   }
+}
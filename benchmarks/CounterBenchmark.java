@@ -0,0 +1,56 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SharedCounter (one AtomicInteger) vs StripedCounter (padded per-core cells).
+ *
+ * All threads share one counter of each kind. Run at the thread counts that
+ * matter for us: BenchmarkRunner CounterBenchmark 2,8,32,64
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CounterBenchmark {
+
+   private final SharedCounter atomicCounter = new SharedCounter();
+   private final StripedCounter stripedCounter = new StripedCounter();
+
+   @Benchmark
+   public void atomicIntegerIncrement() {
+      atomicCounter.increment();
+   }
+
+   @Benchmark
+   public void stripedIncrement() {
+      stripedCounter.increment();
+   }
+
+   @Benchmark
+   public int atomicIntegerRead() {
+      return atomicCounter.getCount();
+   }
+
+   @Benchmark
+   public long stripedApproximateRead() {
+      return stripedCounter.getCount();
+   }
+
+   @Benchmark
+   public long stripedExactRead() {
+      return stripedCounter.getExactCount();
+   }
+}
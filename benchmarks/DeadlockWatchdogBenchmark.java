@@ -0,0 +1,59 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of DeadlockWatchdog on a lock-heavy workload (Ledger transfers).
+ *
+ * samplingMillis=0 runs without a watchdog and is the baseline; the budget is
+ * less than 1% throughput loss against it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class DeadlockWatchdogBenchmark {
+
+   @Param({"0", "1000", "100", "10"})
+   public long samplingMillis;
+
+   private Ledger ledger;
+   private DeadlockWatchdog watchdog;
+
+   @Setup
+   public void setUp() {
+      ledger = new Ledger(1000, 1_000_000);
+      if (samplingMillis > 0) {
+         watchdog = new DeadlockWatchdog(samplingMillis, false).start();
+      }
+   }
+
+   @TearDown
+   public void tearDown() {
+      if (watchdog != null) {
+         watchdog.close();
+      }
+   }
+
+   @Benchmark
+   public boolean transfer() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return ledger.transfer(random.nextInt(1000), random.nextInt(1000), 1);
+   }
+}
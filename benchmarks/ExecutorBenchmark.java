@@ -0,0 +1,98 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Every ExecutorFactory kind on a mixed CPU/I/O workload.
+ *
+ * Each shot submits `tasks` tasks; ioPercent of them sleep 1 ms (I/O), the
+ * rest burn a little CPU. The score is the time to finish all of them; the
+ * PoolCounters rows show wait p99, run p99, steals and the peak queue depth
+ * observed while submitting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutorBenchmark {
+
+   @Param({"FIXED", "CACHED", "WORK_STEALING", "VIRTUAL_PER_TASK"})
+   public String kind;
+
+   @Param({"8"})
+   public int threads;
+
+   @Param({"10000"})
+   public int tasks;
+
+   @Param({"0", "20", "100"})
+   public int ioPercent;
+
+   @AuxCounters(AuxCounters.Type.EVENTS)
+   @State(Scope.Thread)
+   public static class PoolCounters {
+      public long waitP99Micros;
+      public long runP99Micros;
+      public long steals;
+      public long peakQueueDepth;
+
+      @Setup(Level.Iteration)
+      public void reset() {
+         waitP99Micros = 0;
+         runP99Micros = 0;
+         steals = 0;
+         peakQueueDepth = 0;
+      }
+   }
+
+   @Benchmark
+   public void mixedWorkload(PoolCounters counters) throws InterruptedException {
+      MeteredExecutorService pool = ExecutorFactory.create(ExecutorFactory.Kind.valueOf(kind), threads);
+      CountDownLatch done = new CountDownLatch(tasks);
+      Runnable cpu = () -> {
+         Blackhole.consumeCPU(2_000);
+         done.countDown();
+      };
+      Runnable io = () -> {
+         try {
+            Thread.sleep(1);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         done.countDown();
+      };
+      for (int i = 0; i < tasks; i++) {
+         pool.execute(ThreadLocalRandom.current().nextInt(100) < ioPercent ? io : cpu);
+         if ((i & 1023) == 0) {
+            counters.peakQueueDepth = Math.max(counters.peakQueueDepth, pool.stats().queueDepth());
+         }
+      }
+      done.await();
+      pool.shutdown();
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+
+      MeteredExecutorService.PoolStats stats = pool.stats();
+      counters.waitP99Micros = stats.waitTime().percentile(99) / 1_000;
+      counters.runP99Micros = stats.runTime().percentile(99) / 1_000;
+      counters.steals = stats.steals();
+   }
+}
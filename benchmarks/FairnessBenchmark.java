@@ -0,0 +1,84 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Unfair vs fair ReentrantLock vs AdaptiveFairnessLock under contention.
+ *
+ * throughput: lock acquisitions per second across all threads.
+ * acquireLatency: sampled time of one lock/work/unlock; its p1.00 row is the
+ * worst wait a thread saw, i.e. how badly stragglers starve.
+ * Run with several threads: BenchmarkRunner FairnessBenchmark 2,4,8,16
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FairnessBenchmark {
+
+   @Param({"unfair", "fair", "adaptive"})
+   public String lockType;
+
+   // Threshold after which the adaptive lock turns FIFO
+   @Param({"1"})
+   public long starvationMillis;
+
+   private Lock lock;
+   private long counter;
+
+   @Setup
+   public void setUp() {
+      switch (lockType) {
+         case "unfair":
+            lock = new ReentrantLock(false);
+            break;
+         case "fair":
+            lock = new ReentrantLock(true);
+            break;
+         case "adaptive":
+            lock = new AdaptiveFairnessLock(starvationMillis, TimeUnit.MILLISECONDS);
+            break;
+         default:
+            throw new IllegalArgumentException("Unknown lock type: " + lockType);
+      }
+   }
+
+   private long criticalSection() {
+      lock.lock();
+      try {
+         Blackhole.consumeCPU(50);
+         return ++counter;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.Throughput)
+   @OutputTimeUnit(TimeUnit.SECONDS)
+   public long throughput() {
+      return criticalSection();
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.SampleTime)
+   @OutputTimeUnit(TimeUnit.MICROSECONDS)
+   public long acquireLatency() {
+      return criticalSection();
+   }
+}
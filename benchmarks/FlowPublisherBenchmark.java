@@ -0,0 +1,147 @@
+package MultithreadingInJava;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One producer handing items to many consumers: HandoffPublisher (Flow,
+ * request(n) demand, no thread per consumer) vs blocking consumers (one
+ * platform thread per consumer parked in take()).
+ *
+ * The blocking side uses an ArrayBlockingQueue rather than SharedResource:
+ * SharedResource wakes waiters with notify(), which with 1,000 consumers can
+ * wake another consumer instead of the producer and stall for good.
+ *
+ * Score: items per second from offer/put until consumed. Live JVM threads
+ * are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlowPublisherBenchmark {
+   private static final int ITEMS = 100_000;
+   private static final int REQUEST = 32;
+
+   @Param({"publisher", "blocking"})
+   public String mode;
+
+   @Param({"1000"})
+   public int subscribers;
+
+   private final LongAdder consumed = new LongAdder();
+   private long expected;
+   private HandoffPublisher publisher;
+   private BlockingQueue<Integer> queue;
+   private Thread[] consumers;
+
+   @Setup(Level.Trial)
+   public void start() {
+      if (mode.equals("publisher")) {
+         publisher = new HandoffPublisher(1024);
+         for (int i = 0; i < subscribers; i++) {
+            publisher.subscribe(new CountingSubscriber());
+         }
+      } else {
+         queue = new ArrayBlockingQueue<>(1024);
+         consumers = new Thread[subscribers];
+         for (int i = 0; i < subscribers; i++) {
+            consumers[i] = new Thread(() -> {
+               try {
+                  while (true) {
+                     queue.take();
+                     consumed.increment();
+                  }
+               } catch (InterruptedException e) {
+                  // Trial finished
+               }
+            }, "Consumer-" + i);
+            consumers[i].setDaemon(true);
+            consumers[i].start();
+         }
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void stop() throws InterruptedException {
+      System.out.println(mode + ": " + ManagementFactory.getThreadMXBean().getThreadCount() + " live threads for "
+            + subscribers + " consumers");
+      if (publisher != null) {
+         publisher.close();
+      } else {
+         for (Thread consumer : consumers) {
+            consumer.interrupt();
+         }
+         for (Thread consumer : consumers) {
+            consumer.join();
+         }
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(ITEMS)
+   public long handoff() throws InterruptedException {
+      expected += ITEMS;
+      for (int i = 0; i < ITEMS; i++) {
+         if (publisher != null) {
+            while (!publisher.offer(i)) {
+               Thread.yield();  // Buffer full: let the deliveries run
+            }
+         } else {
+            queue.put(i);
+         }
+      }
+      while (consumed.sum() < expected) {
+         Thread.yield();
+      }
+      return expected;
+   }
+
+   private final class CountingSubscriber implements Flow.Subscriber<Integer> {
+      private Flow.Subscription subscription;
+      private int received;
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+         this.subscription = subscription;
+         subscription.request(REQUEST);
+      }
+
+      @Override
+      public void onNext(Integer item) {
+         consumed.increment();
+         if (++received % REQUEST == 0) {
+            subscription.request(REQUEST);
+         }
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onComplete() {
+      }
+   }
+}
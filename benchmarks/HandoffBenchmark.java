@@ -0,0 +1,227 @@
+package MultithreadingInJava;
+
+import java.io.PrintStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Producer to consumer handoff: SharedResource (one slot, wait/notify) vs RingBuffer.
+ *
+ * Dedicated producer threads push BATCH messages per invocation while the
+ * benchmark thread (plus helper consumer threads) consumes them, so the score
+ * is messages per second through the handoff. SharedResource and SPSC run one
+ * producer and one consumer, MPSC runs `producers` producers and one consumer,
+ * MPMC runs `producers` producers and `consumers` consumers, so every mode is
+ * measured under the contention it is built for. Helpers wait on semaphores
+ * between invocations, which lets them stop cleanly at the end of an iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dmultithreading.log.policy=DROP")  // SharedResource logs every call: do not measure the log flusher
+@Threads(1)
+public class HandoffBenchmark {
+
+   static final int BATCH = 1 << 14;
+
+   @State(Scope.Benchmark)
+   public static class SharedResourceHandoff {
+      SharedResource resource;
+      Semaphore batches;
+      Thread producer;
+      PrintStream originalOut;
+
+      @Setup
+      public void start() {
+         originalOut = QuietConsole.silence();
+         resource = new SharedResource();
+         batches = new Semaphore(0);
+         producer = new Thread(() -> {
+            try {
+               for (;;) {
+                  batches.acquire();
+                  for (int i = 0; i < BATCH; i++) {
+                     resource.producer(i);
+                  }
+               }
+            } catch (InterruptedException e) {
+               // Benchmark finished
+            }
+         }, "SharedResource-producer");
+         producer.setDaemon(true);
+         producer.start();
+      }
+
+      @TearDown
+      public void stop() throws InterruptedException {
+         producer.interrupt();
+         producer.join();
+         QuietConsole.restore(originalOut);
+      }
+   }
+
+   @State(Scope.Benchmark)
+   public static class RingBufferHandoff {
+      @Param({"SPSC", "MPSC", "MPMC"})
+      public String mode;
+
+      @Param({"busySpin", "yielding", "parking"})
+      public String waitStrategy;
+
+      @Param({"1024"})
+      public int capacity;
+
+      // Used where the mode allows it: MPSC runs this many producers, MPMC this many of each side
+      @Param({"4"})
+      public int producers;
+
+      @Param({"4"})
+      public int consumers;
+
+      RingBuffer<Integer> ring;
+      int producerCount;
+      int consumerCount;
+      Semaphore batches;
+      Semaphore consumeBatches;
+      Semaphore consumed;
+      volatile boolean drain;
+      volatile long sink;
+      Thread[] threads;
+
+      @Setup
+      public void start() {
+         RingBuffer.Mode ringMode = RingBuffer.Mode.valueOf(mode);
+         producerCount = ringMode == RingBuffer.Mode.SPSC ? 1 : producers;
+         consumerCount = ringMode == RingBuffer.Mode.MPMC ? consumers : 1;
+         if (BATCH % producerCount != 0 || BATCH % consumerCount != 0) {
+            throw new IllegalArgumentException("producers and consumers must divide " + BATCH);
+         }
+         ring = new RingBuffer<>(capacity, ringMode, WaitStrategy.named(waitStrategy));
+         batches = new Semaphore(0);
+         consumeBatches = new Semaphore(0);
+         consumed = new Semaphore(0);
+         // The benchmark thread is consumer 0; the other consumers are helper threads
+         threads = new Thread[producerCount + consumerCount - 1];
+         for (int p = 0; p < producerCount; p++) {
+            threads[p] = new Thread(() -> {
+               try {
+                  for (;;) {
+                     batches.acquire();
+                     for (int i = 0; i < BATCH / producerCount; i++) {
+                        ring.put(i);
+                     }
+                  }
+               } catch (InterruptedException e) {
+                  // Benchmark finished
+               }
+            }, "RingBuffer-producer-" + p);
+         }
+         for (int c = 1; c < consumerCount; c++) {
+            threads[producerCount + c - 1] = new Thread(() -> {
+               try {
+                  long sum = 0;
+                  for (;;) {
+                     consumeBatches.acquire();
+                     sum += consume(this, drain, BATCH / consumerCount, null);
+                     sink = sum;
+                     consumed.release();
+                  }
+               } catch (InterruptedException e) {
+                  // Benchmark finished
+               }
+            }, "RingBuffer-consumer-" + c);
+         }
+         for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+         }
+      }
+
+      /** Moves BATCH items: every producer its share, every consumer its share. */
+      void handoff(boolean drainTo, Blackhole blackhole) throws InterruptedException {
+         drain = drainTo;
+         batches.release(producerCount);
+         consumeBatches.release(consumerCount - 1);
+         consume(this, drainTo, BATCH / consumerCount, blackhole);
+         consumed.acquire(consumerCount - 1);
+      }
+
+      @TearDown
+      public void stop() throws InterruptedException {
+         for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join();
+         }
+      }
+   }
+
+   /** Takes count items with take() or drainTo(); blackhole is null on helper threads. */
+   static long consume(RingBufferHandoff handoff, boolean drainTo, int count, Blackhole blackhole) {
+      RingBuffer<Integer> ring = handoff.ring;
+      long sum = 0;
+      if (!drainTo) {
+         for (int i = 0; i < count; i++) {
+            Integer item = ring.take();
+            if (blackhole != null) {
+               blackhole.consume(item);
+            } else {
+               sum += item;
+            }
+         }
+         return sum;
+      }
+      WaitStrategy idle = ring.waitStrategy();
+      long[] drainedSum = new long[1];
+      int received = 0;
+      int idleCount = 0;
+      while (received < count) {
+         int drained = blackhole != null ? ring.drainTo(blackhole::consume, count - received)
+               : ring.drainTo(item -> drainedSum[0] += item, count - received);
+         if (drained == 0) {
+            idle.idle(idleCount++);
+         } else {
+            received += drained;
+            idleCount = 0;
+         }
+      }
+      return sum + drainedSum[0];
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH)
+   public void sharedResource(SharedResourceHandoff handoff, Blackhole blackhole) {
+      handoff.batches.release();
+      for (int i = 0; i < BATCH; i++) {
+         blackhole.consume(handoff.resource.consumer());
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH)
+   public void ringBufferTake(RingBufferHandoff handoff, Blackhole blackhole) throws InterruptedException {
+      handoff.handoff(false, blackhole);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH)
+   public void ringBufferDrainTo(RingBufferHandoff handoff, Blackhole blackhole) throws InterruptedException {
+      handoff.handoff(true, blackhole);
+   }
+}
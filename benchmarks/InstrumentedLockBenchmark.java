@@ -0,0 +1,54 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of InstrumentedLock over a plain ReentrantLock for a short critical section.
+ *
+ * Run with -prof gc to check the instrumented fast path allocates nothing
+ * (gc.alloc.rate.norm should be ~0 B/op for both).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentedLockBenchmark {
+
+   @Param({"plain", "instrumented"})
+   public String lockType;
+
+   private Lock lock;
+   private long counter;
+
+   @Setup
+   public void setUp() {
+      ReentrantLock reentrantLock = new ReentrantLock();
+      lock = "instrumented".equals(lockType) ? new InstrumentedLock(reentrantLock) : reentrantLock;
+   }
+
+   @Benchmark
+   public long lockUnlock() {
+      lock.lock();
+      try {
+         return ++counter;
+      } finally {
+         lock.unlock();
+      }
+   }
+}
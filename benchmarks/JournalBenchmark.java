@@ -0,0 +1,77 @@
+package MultithreadingInJava;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Durable withdrawals per second: group commit vs fsync per op.
+ *
+ * Every op is a DurableAccounts.withdraw that returns only once its journal
+ * record is forced. The journal lives in `dir` - point it at the disk you
+ * care about (-p dir=/data/bench); a tmpfs makes force() free and the
+ * numbers meaningless. Group-commit batches grow with the number of
+ * concurrent callers, so compare at several -t values (default 32).
+ * Records per force() are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@Threads(32)
+public class JournalBenchmark {
+
+   @Param({"GROUP_COMMIT", "FSYNC_PER_OP"})
+   public String durability;
+
+   @Param({"target/journal-bench"})
+   public String dir;
+
+   @Param({"100000"})
+   public int accounts;
+
+   private DurableAccounts bank;
+   private Path journal;
+
+   @Setup(Level.Trial)
+   public void open() throws IOException {
+      Path directory = Files.createDirectories(Path.of(dir));
+      journal = directory.resolve("withdrawals-" + durability + ".journal");
+      Files.deleteIfExists(journal);
+      bank = new DurableAccounts(journal, accounts, Long.MAX_VALUE / accounts, WithdrawalJournal.Durability.valueOf(durability));
+   }
+
+   @TearDown(Level.Trial)
+   public void close() throws IOException {
+      long records = bank.journal().durableSequence();
+      long forces = bank.journal().forces();
+      bank.close();
+      System.out.printf("%s: %,d records, %.1f records per force()%n", durability,
+            records, (double) records / Math.max(1, forces));
+      Files.deleteIfExists(journal);
+   }
+
+   @Benchmark
+   public boolean durableWithdraw() {
+      return bank.withdraw(ThreadLocalRandom.current().nextInt(accounts), 1);
+   }
+}
@@ -0,0 +1,72 @@
+package MultithreadingInJava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ledger transfer throughput for uniform and hot-key (Zipfian) account access.
+ *
+ * transfer: one ordered two-account transfer per operation.
+ * transferAll: batches of BATCH transfers under one merged lock set; the score
+ * is still transfers per second.
+ * Run over thread counts: BenchmarkRunner LedgerBenchmark 1,4,16,64
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerBenchmark {
+
+   static final int BATCH = 16;
+
+   @Param({"10000"})
+   public int accounts;
+
+   @Param({"uniform", "zipfian"})
+   public String distribution;
+
+   private Ledger ledger;
+   private Zipfian zipfian;
+
+   @Setup
+   public void setUp() {
+      ledger = new Ledger(accounts, 1_000_000);
+      zipfian = new Zipfian(accounts, 0.99);
+   }
+
+   private int nextAccount() {
+      return "zipfian".equals(distribution) ? zipfian.next() : ThreadLocalRandom.current().nextInt(accounts);
+   }
+
+   @Benchmark
+   public boolean transfer() {
+      return ledger.transfer(nextAccount(), nextAccount(), 1);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH)
+   public boolean[] transferAll() {
+      List<Ledger.Transfer> batch = new ArrayList<>(BATCH);
+      for (int i = 0; i < BATCH; i++) {
+         batch.add(new Ledger.Transfer(nextAccount(), nextAccount(), 1));
+      }
+      return ledger.transferAll(batch);
+   }
+}
@@ -0,0 +1,73 @@
+package MultithreadingInJava;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one log line on the calling thread: println with string concatenation
+ * (what the examples used to do) vs AsyncLogger with DROP and BLOCK policies.
+ *
+ * Output goes to a discarding stream, so this measures the caller-side cost
+ * (monitor, formatting, allocation), not the terminal. Run with -prof gc and
+ * several threads: BenchmarkRunner LoggingBenchmark 1,4,16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+   @Param({"println", "asyncDrop", "asyncBlock"})
+   public String logger;
+
+   private PrintStream discard;
+   private AsyncLogger asyncLogger;
+   private long amount = 500;
+
+   @Setup
+   public void setUp() {
+      discard = new PrintStream(OutputStream.nullOutputStream());
+      switch (logger) {
+         case "asyncDrop":
+            asyncLogger = new AsyncLogger(1 << 16, AsyncLogger.OverflowPolicy.DROP, discard);
+            break;
+         case "asyncBlock":
+            asyncLogger = new AsyncLogger(1 << 16, AsyncLogger.OverflowPolicy.BLOCK, discard);
+            break;
+         default:
+            break;
+      }
+   }
+
+   @TearDown
+   public void tearDown() {
+      if (asyncLogger != null) {
+         asyncLogger.close();
+      }
+   }
+
+   @Benchmark
+   public void logLine() {
+      if (asyncLogger == null) {
+         discard.println("Thread " + Thread.currentThread().getName() + " request to Withdraw $ " + amount);
+      } else {
+         asyncLogger.log("request to Withdraw $ ", amount);
+      }
+   }
+}
@@ -0,0 +1,147 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Allocating a PooledMessage per use vs ObjectPool in each mode.
+ *
+ * - sameThread:   acquire, touch, release on one thread (best case for the local stage)
+ * - handoff:      producer acquires, consumer releases through a RingBuffer
+ *                 (objects have to come back via the shared stage)
+ * - virtualTasks: 100k short-lived virtual threads acquire and release once each;
+ *                 PER_THREAD builds a cache per thread, AUTO and SHARED do not
+ *
+ * Run with -prof gc: gc.alloc.rate.norm is the allocation per op, which should
+ * drop to ~0 for the pooled modes on sameThread and handoff. Hit rates are
+ * printed at the end of each trial (and reported as counters for virtualTasks).
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectPoolBenchmark {
+
+   @Param({"allocate", "PER_THREAD", "SHARED", "AUTO"})
+   public String strategy;
+
+   private ObjectPool<PooledMessage> pool;
+   private RingBuffer<PooledMessage> channel;
+   private long sequence;
+
+   @AuxCounters(AuxCounters.Type.EVENTS)
+   @State(Scope.Thread)
+   public static class PoolCounters {
+      public long hits;
+      public long misses;
+
+      @Setup(Level.Iteration)
+      public void reset() {
+         hits = 0;
+         misses = 0;
+      }
+   }
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      pool = "allocate".equals(strategy) ? null
+            : new ObjectPool<>(PooledMessage::new, PooledMessage::clear, ObjectPool.Mode.valueOf(strategy), 32, 1024);
+      channel = new RingBuffer<>(256, RingBuffer.Mode.SPSC);
+   }
+
+   @TearDown(Level.Trial)
+   public void printStats() {
+      if (pool != null) {
+         System.out.println(strategy + " pool: " + pool.stats());
+      }
+   }
+
+   @Benchmark
+   @Group("sameThread")
+   public void sameThread(Blackhole bh) {
+      PooledMessage message = acquire();
+      message.sequence = ++sequence;
+      message.length = 1;
+      bh.consume(message);  // Let it escape, or the JIT removes the allocation altogether
+      release(message);
+   }
+
+   @Benchmark
+   @Group("handoff")
+   public boolean produce() {
+      PooledMessage message = acquire();
+      message.sequence = ++sequence;
+      message.length = 1;
+      if (channel.offer(message)) {
+         return true;
+      }
+      release(message);
+      return false;
+   }
+
+   @Benchmark
+   @Group("handoff")
+   public boolean consume() {
+      PooledMessage message = channel.poll();
+      if (message == null) {
+         return false;
+      }
+      release(message);
+      return true;
+   }
+
+   @Benchmark
+   @Group("virtualTasks")
+   @BenchmarkMode(Mode.SingleShotTime)
+   @OutputTimeUnit(TimeUnit.MILLISECONDS)
+   @Warmup(iterations = 2)
+   @Measurement(iterations = 5)
+   public void virtualTasks(PoolCounters counters) throws InterruptedException {
+      int tasks = 100_000;
+      ObjectPool.Stats before = pool == null ? null : pool.stats();
+      CountDownLatch done = new CountDownLatch(tasks);
+      for (int i = 0; i < tasks; i++) {
+         Thread.ofVirtual().start(() -> {
+            PooledMessage message = acquire();
+            message.length = 1;
+            release(message);
+            done.countDown();
+         });
+      }
+      done.await();
+      if (pool != null) {
+         ObjectPool.Stats after = pool.stats();
+         counters.misses = after.misses() - before.misses();
+         counters.hits = tasks - counters.misses;
+      }
+   }
+
+   private PooledMessage acquire() {
+      return pool == null ? new PooledMessage() : pool.acquire();
+   }
+
+   private void release(PooledMessage message) {
+      if (pool != null) {
+         pool.release(message);
+      }
+   }
+}
@@ -0,0 +1,96 @@
+package MultithreadingInJava;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One SbiAccount object per account vs OffHeapBalanceTable.
+ *
+ * - withdraw: random-account withdrawals, ops/us (use -t for contention).
+ *   SbiAccount also logs through AsyncLogger on every call; the console is
+ *   silenced and the fork uses the DROP policy, so the caller-side logging
+ *   cost stays in its number but the single flusher thread does not.
+ * - fullGc:   time of one System.gc() with all accounts alive - the GC pause
+ *   that the on-heap objects cost and the off-heap table does not.
+ *
+ * The retained heap per account is printed at setup. 50M on-heap accounts
+ * need ~1.5 GB (the fork gets -Xmx3g).
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx3g", "-Dmultithreading.log.policy=DROP"})
+public class OffHeapBenchmark {
+
+   @Param({"objects", "offHeap"})
+   public String store;
+
+   @Param({"1000000", "50000000"})
+   public int accounts;
+
+   private Account[] objects;
+   private OffHeapBalanceTable table;
+   private PrintStream originalOut;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      originalOut = QuietConsole.silence();
+      long before = usedHeapAfterGc();
+      if ("objects".equals(store)) {
+         objects = new Account[accounts];
+         for (int i = 0; i < accounts; i++) {
+            objects[i] = new SbiAccount(Integer.MAX_VALUE, 0);
+         }
+      } else {
+         table = new OffHeapBalanceTable(accounts, Integer.MAX_VALUE);
+      }
+      long heapBytes = Math.max(0, usedHeapAfterGc() - before);
+      originalOut.printf("%s: %,d accounts retain %,d heap bytes (%.1f per account)%n",
+            store, accounts, heapBytes, (double) heapBytes / accounts);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      if (table != null) {
+         table.close();
+      }
+      objects = null;
+      QuietConsole.restore(originalOut);
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.Throughput)
+   @OutputTimeUnit(TimeUnit.MICROSECONDS)
+   public boolean withdraw() {
+      int id = ThreadLocalRandom.current().nextInt(accounts);
+      return table != null ? table.withdraw(id, 1) : objects[id].withdrawAmount(1);
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.SingleShotTime)
+   @OutputTimeUnit(TimeUnit.MILLISECONDS)
+   public void fullGc() {
+      System.gc();
+   }
+
+   private static long usedHeapAfterGc() {
+      System.gc();
+      return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+   }
+}
@@ -0,0 +1,84 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 10k concurrent customers on virtual threads: synchronized SbiAccount vs
+ * NonPinningSbiAccount (ReentrantLock).
+ *
+ * Each shot runs one withdrawal (1 ms slow work) per customer spread over
+ * the accounts. The primary score is the time of the whole shot, including
+ * starting and draining the JFR stream; the secondary rows report the
+ * customers' own withdrawals/s, JFR pinning events and the share of carrier
+ * time spent pinned (in percent).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dmultithreading.log.policy=DROP")  // The accounts log every call: do not measure the log flusher
+public class PinningBenchmark {
+
+   @Param({"synchronized", "nonPinning"})
+   public String account;
+
+   @Param({"10000"})
+   public int customers;
+
+   @Param({"100"})
+   public int accounts;
+
+   @AuxCounters(AuxCounters.Type.EVENTS)
+   @State(Scope.Thread)
+   public static class PinningCounters {
+      public long pinnedEvents;
+      public double carrierPinnedPercent;
+      public double withdrawalsPerSecond;
+
+      @Setup(Level.Iteration)
+      public void reset() {
+         pinnedEvents = 0;
+         carrierPinnedPercent = 0;
+         withdrawalsPerSecond = 0;
+      }
+   }
+
+   @Benchmark
+   public void customers(PinningCounters counters) throws InterruptedException {
+      Account[] bank = new Account[accounts];
+      for (int i = 0; i < accounts; i++) {
+         bank[i] = "synchronized".equals(account)
+               ? new SbiAccount(Integer.MAX_VALUE, 1)
+               : new NonPinningSbiAccount(Integer.MAX_VALUE, 1);
+      }
+      try (PinningMonitor monitor = new PinningMonitor()) {
+         long start = System.nanoTime();
+         try (VirtualTaskRunner runner = new VirtualTaskRunner(customers)) {
+            for (int i = 0; i < customers; i++) {
+               runner.submit(() -> bank[ThreadLocalRandom.current().nextInt(accounts)].withdrawAmount(1));
+            }
+         }
+         long elapsedNanos = System.nanoTime() - start;
+         monitor.stop();
+         counters.pinnedEvents = monitor.pinnedEvents();
+         counters.carrierPinnedPercent = 100 * monitor.pinnedCarrierShare(elapsedNanos);
+         counters.withdrawalsPerSecond = customers / (elapsedNanos / 1e9);
+      }
+   }
+}
@@ -0,0 +1,54 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Items per second through a 4-step Pipeline (source -> 2 stages -> sink) by
+ * batch size. batchSize=1 is the item-by-item handoff of SharedResource,
+ * only lock-free; larger batches pay the queue handoff once per batch.
+ * Each invocation builds a pipeline and pushes ITEMS through it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+   private static final int ITEMS = 200_000;
+
+   @Param({"1", "16", "256"})
+   public int batchSize;
+
+   @Param({"parking", "yielding"})
+   public String waitStrategy;
+
+   @Benchmark
+   @OperationsPerInvocation(ITEMS)
+   public long pipeline() throws InterruptedException, ExecutionException {
+      LongAdder sum = new LongAdder();
+      Pipeline pipeline = Pipeline.from("source", IntStream.range(0, ITEMS).iterator())
+            .batchSize(batchSize)
+            .waitStrategy(WaitStrategy.named(waitStrategy))
+            .stage("square", 1, i -> (long) i * i)
+            .stage("mix", 1, x -> x ^ (x >>> 7))
+            .sink("sum", 1, sum::add);
+      pipeline.await();
+      return sum.sum();
+   }
+}
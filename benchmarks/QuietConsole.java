@@ -0,0 +1,28 @@
+package MultithreadingInJava;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * The examples log every step with System.out.println. Benchmarks swap in a
+ * PrintStream that discards the bytes: the PrintStream locking stays in the
+ * measured code, the terminal I/O does not.
+ */
+final class QuietConsole {
+
+   private QuietConsole() {
+   }
+
+   /**
+    * @return the original System.out, to be passed to {@link #restore(PrintStream)}
+    */
+   static PrintStream silence() {
+      PrintStream original = System.out;
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+      return original;
+   }
+
+   static void restore(PrintStream original) {
+      System.setOut(original);
+   }
+}
@@ -0,0 +1,53 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ReadWriteLockExample in READ_WRITE_LOCK vs OPTIMISTIC_READ vs RCU mode.
+ *
+ * Every thread runs a random read/write mix: writePercent=5 is the 95/5 mix,
+ * writePercent=1 the 99/1 mix. Run over thread counts to see how reader
+ * throughput scales: BenchmarkRunner ReadWriteLockBenchmark 1,2,4,8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadWriteLockBenchmark {
+
+   @Param({"READ_WRITE_LOCK", "OPTIMISTIC_READ", "RCU"})
+   public ReadWriteLockExample.Mode mode;
+
+   @Param({"5", "1"})
+   public int writePercent;
+
+   private ReadWriteLockExample example;
+
+   @Setup
+   public void setUp() {
+      example = new ReadWriteLockExample(mode);
+   }
+
+   @Benchmark
+   public int readWriteMix() {
+      if (ThreadLocalRandom.current().nextInt(100) < writePercent) {
+         return example.writeCount();
+      }
+      return example.readCount();
+   }
+}
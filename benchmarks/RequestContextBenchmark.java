@@ -0,0 +1,57 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RequestContext lookup cost: ScopedValue vs ThreadLocal.
+ *
+ * Each op binds a userId with run()/call() and reads it back `lookups` times,
+ * the way a request handler reads its context from several layers deep.
+ * lookups=1 is dominated by the bind, lookups=16 by the reads.
+ * See RequestContextMemoryBenchmark for the per-thread footprint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class RequestContextBenchmark {
+
+   @Param({"scoped", "threadLocal"})
+   public String backend;
+
+   @Param({"1", "16"})
+   public int lookups;
+
+   private RequestContext context;
+   private long userId;
+
+   @Setup
+   public void setUp() {
+      context = "scoped".equals(backend) ? RequestContext.scoped() : RequestContext.threadLocal();
+   }
+
+   @Benchmark
+   public long bindAndLookup() throws Exception {
+      return context.call(++userId, () -> {
+         long sum = 0;
+         for (int i = 0; i < lookups; i++) {
+            sum += context.userId();
+         }
+         return sum;
+      });
+   }
+}
@@ -0,0 +1,101 @@
+package MultithreadingInJava;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-thread memory of a bound RequestContext with 1M live virtual threads.
+ *
+ * Every virtual thread binds its own userId, reads it, and then parks until
+ * all of them are alive, so every binding is held at the same time. The
+ * MemoryCounters row reports the retained heap per thread (measured after a
+ * GC); "none" is the bare virtual thread to subtract from the other two.
+ * The score is the time to start, bind and finish all threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx3g"})
+public class RequestContextMemoryBenchmark {
+
+   @Param({"none", "scoped", "threadLocal"})
+   public String backend;
+
+   @Param({"1000000"})
+   public int threads;
+
+   private RequestContext context;
+
+   @AuxCounters(AuxCounters.Type.EVENTS)
+   @State(Scope.Thread)
+   public static class MemoryCounters {
+      public long bytesPerThread;
+
+      @Setup(Level.Iteration)
+      public void reset() {
+         bytesPerThread = 0;
+      }
+   }
+
+   @Setup
+   public void setUp() {
+      context = "scoped".equals(backend) ? RequestContext.scoped()
+            : "threadLocal".equals(backend) ? RequestContext.threadLocal() : null;
+   }
+
+   @Benchmark
+   public void millionBoundThreads(MemoryCounters counters) throws InterruptedException {
+      CountDownLatch started = new CountDownLatch(threads);
+      CountDownLatch release = new CountDownLatch(1);
+      Thread[] all = new Thread[threads];
+      long before = usedHeapAfterGc();
+      for (int i = 0; i < threads; i++) {
+         final long userId = i;
+         Runnable park = () -> {
+            started.countDown();
+            try {
+               release.await();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         };
+         all[i] = Thread.ofVirtual().start(context == null ? park : () -> context.run(userId, () -> {
+            if (context.userId() != userId) {
+               throw new IllegalStateException("Saw another request's userId");
+            }
+            park.run();
+         }));
+      }
+      started.await();
+      counters.bytesPerThread = (usedHeapAfterGc() - before) / threads;
+      release.countDown();
+      for (Thread thread : all) {
+         thread.join();
+      }
+   }
+
+   private static long usedHeapAfterGc() {
+      MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+      System.gc();
+      System.gc();
+      return memory.getHeapMemoryUsage().getUsed();
+   }
+}
@@ -0,0 +1,86 @@
+package MultithreadingInJava;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Large read-mostly routing table: RCU (RcuReference of an immutable
+ * RoutingTable) vs a HashMap behind ReentrantReadWriteLock.
+ *
+ * 64 reader threads look up random routes; one writer changes a route every
+ * writeIntervalMs. Compare the "lookup" score: the writer's own score only
+ * counts its (sleep-dominated) updates.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingTableBenchmark {
+
+   @Param({"RCU", "READ_WRITE_LOCK"})
+   public String mode;
+
+   @Param({"100000"})
+   public int routes;
+
+   @Param({"100"})
+   public int writeIntervalMs;
+
+   private boolean rcu;
+   private String[] keys;
+   private RcuReference<RoutingTable> rcuTable;
+   private LockedRoutingTable lockedTable;
+
+   @Setup
+   public void setUp() {
+      rcu = mode.equals("RCU");
+      keys = new String[routes];
+      Map<String, String> initial = new HashMap<>();
+      for (int i = 0; i < routes; i++) {
+         keys[i] = "route-" + i;
+         initial.put(keys[i], "backend-" + (i % 16));
+      }
+      rcuTable = new RcuReference<>(new RoutingTable(initial));
+      lockedTable = new LockedRoutingTable(initial);
+   }
+
+   @Benchmark
+   @Group("readMostly")
+   @GroupThreads(64)
+   public String lookup() {
+      String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+      return rcu ? rcuTable.get().route(key) : lockedTable.route(key);
+   }
+
+   @Benchmark
+   @Group("readMostly")
+   @GroupThreads(1)
+   public void update() {
+      String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+      if (rcu) {
+         rcuTable.update(table -> table.with(key, "backend-moved"));
+      } else {
+         lockedTable.put(key, "backend-moved");
+      }
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(writeIntervalMs));
+   }
+}
@@ -0,0 +1,102 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ScheduledThreadPoolExecutor (binary heap) vs TimingWheelScheduler with
+ * `pending` timers already waiting.
+ *
+ * The measured operation is the timeout pattern: schedule a timer and cancel
+ * it before it fires. The JDK pool runs with setRemoveOnCancelPolicy(true) so
+ * cancelled timers leave the heap instead of piling up.
+ *
+ * Like for like: the JDK pool does the heap insert and remove on the caller
+ * thread, the wheel hands both to its ticker thread. So each invocation
+ * schedules BATCH timers, waits until the ticker has put them into their
+ * slots, cancels them all and waits until the ticker has unlinked them - the
+ * score includes the ticker's O(1) insert/unlink, not just two queue offers.
+ *
+ * 10^7 pending timers need about 1.5 GB of heap (the fork gets -Xmx3g).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TimerBenchmark {
+
+   static final int BATCH = 1024;
+   private static final Runnable NOOP = () -> { };
+
+   @Param({"jdk", "wheel"})
+   public String scheduler;
+
+   @Param({"10000", "100000", "1000000", "10000000"})
+   public int pending;
+
+   private ScheduledExecutorService executor;
+   private final ScheduledFuture<?>[] timeouts = new ScheduledFuture<?>[BATCH];
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      if ("wheel".equals(scheduler)) {
+         executor = new TimingWheelScheduler(1, TimeUnit.MILLISECONDS, 2);
+      } else {
+         ScheduledThreadPoolExecutor jdk = new ScheduledThreadPoolExecutor(2);
+         jdk.setRemoveOnCancelPolicy(true);
+         executor = jdk;
+      }
+      for (int i = 0; i < pending; i++) {
+         // Spread the deadlines over an hour so they land in different slots / heap positions
+         executor.schedule(NOOP, 3_600_000L + i % 3_600_000, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() throws InterruptedException {
+      executor.shutdownNow();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH)
+   public int scheduleAndCancel() {
+      for (int i = 0; i < BATCH; i++) {
+         timeouts[i] = executor.schedule(NOOP, 30, TimeUnit.SECONDS);
+      }
+      drain();
+      int cancelled = 0;
+      for (int i = 0; i < BATCH; i++) {
+         if (timeouts[i].cancel(false)) {
+            cancelled++;
+         }
+      }
+      drain();
+      return cancelled;
+   }
+
+   private void drain() {
+      if (executor instanceof TimingWheelScheduler wheel) {
+         wheel.awaitDrained();
+      }
+   }
+}
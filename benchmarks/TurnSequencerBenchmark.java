@@ -0,0 +1,100 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Turn handoff latency: TurnSequencer (per wait strategy) vs a wait/notifyAll
+ * monitor, round-robin over `parties` threads.
+ *
+ * Each shot runs HANDOFFS turns in total; the score is the time per handoff,
+ * i.e. from one party ending its turn to the next one starting its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TurnSequencerBenchmark {
+
+   static final int HANDOFFS = 100_000;
+
+   @Param({"waitNotifyAll", "busySpin", "yielding", "spinThenPark"})
+   public String impl;
+
+   @Param({"2", "4"})
+   public int parties;
+
+   /** The baseline: whose turn it is, guarded by the monitor; every handoff wakes everyone. */
+   static final class MonitorSequencer {
+      private final int parties;
+      private long turn;
+
+      MonitorSequencer(int parties) {
+         this.parties = parties;
+      }
+
+      synchronized void awaitTurn(int party) throws InterruptedException {
+         while (turn % parties != party) {
+            wait();
+         }
+      }
+
+      synchronized void endTurn() {
+         turn++;
+         notifyAll();
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(HANDOFFS)
+   public void roundRobin() throws InterruptedException {
+      int turnsPerParty = HANDOFFS / parties;
+      Thread[] threads = new Thread[parties];
+      if ("waitNotifyAll".equals(impl)) {
+         MonitorSequencer sequencer = new MonitorSequencer(parties);
+         for (int p = 0; p < parties; p++) {
+            final int party = p;
+            threads[p] = new Thread(() -> {
+               try {
+                  for (int i = 0; i < turnsPerParty; i++) {
+                     sequencer.awaitTurn(party);
+                     sequencer.endTurn();
+                  }
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            });
+         }
+      } else {
+         TurnSequencer sequencer = TurnSequencer.roundRobin(parties, WaitStrategy.named(impl));
+         for (int p = 0; p < parties; p++) {
+            final int party = p;
+            threads[p] = new Thread(() -> {
+               for (int i = 0; i < turnsPerParty; i++) {
+                  sequencer.awaitTurn(party);
+                  sequencer.endTurn();
+               }
+            });
+         }
+      }
+      for (Thread thread : threads) {
+         thread.start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+   }
+}
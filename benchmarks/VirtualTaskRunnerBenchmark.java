@@ -0,0 +1,55 @@
+package MultithreadingInJava;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to push a batch of I/O-style tasks (1 ms sleep each) through a
+ * VirtualTaskRunner at different concurrency caps.
+ *
+ * Single-shot: each measurement submits all tasks and waits for completion.
+ * The ideal time is tasks * 1 ms / permits; the gap shows scheduling overhead.
+ * Add -prof gc to see the allocation per task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VirtualTaskRunnerBenchmark {
+
+   @Param({"1000000"})
+   public int tasks;
+
+   @Param({"1000", "10000", "100000"})
+   public int permits;
+
+   @Benchmark
+   public VirtualTaskRunner.Stats runAll() throws InterruptedException {
+      try (VirtualTaskRunner runner = new VirtualTaskRunner(permits)) {
+         Runnable ioCall = () -> {
+            try {
+               Thread.sleep(1);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         };
+         for (int i = 0; i < tasks; i++) {
+            runner.submit(ioCall);
+         }
+         runner.awaitCompletion();
+         return runner.stats();
+      }
+   }
+}
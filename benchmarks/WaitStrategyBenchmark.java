@@ -0,0 +1,118 @@
+package MultithreadingInJava;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wakeup latency vs CPU cost of each WaitStrategy, on the VisibilityProblem flag.
+ *
+ * Each op: the benchmark thread clears the flag, signals a setter thread and
+ * waits for the flag with the strategy under test. The setter sleeps
+ * delayMicros, stamps the time and calls setFlag(true), which wakes parked
+ * waiters. Wakeup latency is "flag seen" minus "flag set".
+ *
+ * At the end of each iteration the waiter's latency percentiles and its CPU
+ * use while waiting (CPU time / wall time, 100% = one full core) are printed.
+ * The score is the round trip, i.e. about delayMicros plus the wakeup latency.
+ * Spinning strategies need a spare core: on a single core they compete with
+ * the setter they are waiting for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class WaitStrategyBenchmark {
+
+   @Param({"busySpin", "yielding", "parking", "spinThenPark", "timedPark"})
+   public String strategy;
+
+   @Param({"50"})
+   public long delayMicros;
+
+   private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+   private WaitStrategy waitStrategy;
+   private VisibilityProblem signal;
+   private Semaphore rounds;
+   private Thread setter;
+   private volatile long setAt;
+
+   private LatencyHistogram latency;
+   private long waitCpuNanos;
+   private long waitWallNanos;
+
+   @Setup(Level.Trial)
+   public void start() {
+      waitStrategy = WaitStrategy.named(strategy);
+      signal = new VisibilityProblem();
+      rounds = new Semaphore(0);
+      setter = new Thread(() -> {
+         try {
+            for (;;) {
+               rounds.acquire();
+               LockSupport.parkNanos(delayMicros * 1_000);
+               setAt = System.nanoTime();
+               signal.setFlag(true);
+            }
+         } catch (InterruptedException e) {
+            // Benchmark finished
+         }
+      }, "flag-setter");
+      setter.setDaemon(true);
+      setter.start();
+   }
+
+   @Setup(Level.Iteration)
+   public void resetStats() {
+      latency = new LatencyHistogram();
+      waitCpuNanos = 0;
+      waitWallNanos = 0;
+   }
+
+   @TearDown(Level.Iteration)
+   public void printStats() {
+      System.out.printf("%s wakeup latency: %s, waiter CPU while waiting: %.0f%%%n",
+            strategy, latency, waitWallNanos == 0 ? 0 : 100.0 * waitCpuNanos / waitWallNanos);
+   }
+
+   @TearDown(Level.Trial)
+   public void stop() throws InterruptedException {
+      setter.interrupt();
+      setter.join();
+   }
+
+   @Benchmark
+   public long waitForFlag() {
+      signal.setFlag(false);
+      long cpuBefore = threads.getCurrentThreadCpuTime();
+      long wallBefore = System.nanoTime();
+      rounds.release();
+      signal.awaitFlag(waitStrategy);
+      long seenAt = System.nanoTime();
+      waitCpuNanos += threads.getCurrentThreadCpuTime() - cpuBefore;
+      waitWallNanos += seenAt - wallBefore;
+      long wakeup = seenAt - setAt;
+      latency.record(wakeup);
+      return wakeup;
+   }
+}
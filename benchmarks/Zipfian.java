@@ -0,0 +1,30 @@
+package MultithreadingInJava;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples ids 0..n-1 with a Zipfian (hot-key) distribution: id 0 is the most
+ * popular, id k is chosen with probability proportional to 1 / (k + 1)^theta.
+ * theta = 0.99 is the usual "hot spot" setting from YCSB.
+ */
+final class Zipfian {
+   private final double[] cumulative;
+
+   Zipfian(int n, double theta) {
+      cumulative = new double[n];
+      double sum = 0;
+      for (int k = 0; k < n; k++) {
+         sum += 1.0 / Math.pow(k + 1, theta);
+         cumulative[k] = sum;
+      }
+      for (int k = 0; k < n; k++) {
+         cumulative[k] /= sum;
+      }
+   }
+
+   int next() {
+      int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+      return index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+   }
+}